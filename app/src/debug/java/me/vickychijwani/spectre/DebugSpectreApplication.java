@@ -7,8 +7,6 @@ import com.facebook.stetho.Stetho;
 import com.squareup.leakcanary.LeakCanary;
 import com.uphyca.stetho_realm.RealmInspectorModulesProvider;
 
-import java.io.File;
-
 import io.palaima.debugdrawer.DebugDrawer;
 import io.palaima.debugdrawer.commons.BuildModule;
 import io.palaima.debugdrawer.commons.DeviceModule;
@@ -43,8 +41,7 @@ public class DebugSpectreApplication extends SpectreApplication {
         if (mOkHttpClient != null) {
             return;
         }
-        File cacheDir = createCacheDir(this);
-        mOkHttpClient = new UnsafeHttpClientFactory().create(cacheDir);
+        initOkHttpClients(new UnsafeHttpClientFactory(this));
     }
 
     @Override
@@ -52,6 +49,7 @@ public class DebugSpectreApplication extends SpectreApplication {
         new DebugDrawer.Builder(activity).modules(
                 new ScalpelModule(activity),
                 new OkHttp3Module(mOkHttpClient),
+                new OkHttp3Module(mImageHttpClient),
                 new PicassoModule(mPicasso),
                 new DeviceModule(activity),
                 new BuildModule(activity),
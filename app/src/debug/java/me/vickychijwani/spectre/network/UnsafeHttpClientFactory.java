@@ -1,6 +1,7 @@
 package me.vickychijwani.spectre.network;
 
 import android.annotation.SuppressLint;
+import android.content.Context;
 import android.support.annotation.Nullable;
 
 import com.facebook.stetho.okhttp3.StethoInterceptor;
@@ -21,7 +22,8 @@ public class UnsafeHttpClientFactory extends ProductionHttpClientFactory {
 
     private final X509TrustManager mGullibleTrustManager;
 
-    public UnsafeHttpClientFactory() {
+    public UnsafeHttpClientFactory(@Nullable Context context) {
+        super(context);
         mGullibleTrustManager = new GullibleX509TrustManager();
     }
 
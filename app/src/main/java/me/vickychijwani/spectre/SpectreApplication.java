@@ -1,10 +1,14 @@
 package me.vickychijwani.spectre;
 
 import android.app.Activity;
+import android.app.ActivityManager;
 import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.app.ActivityManagerCompat;
 import android.util.Log;
 
 import com.crashlytics.android.Crashlytics;
@@ -12,11 +16,14 @@ import com.crashlytics.android.answers.Answers;
 import com.jakewharton.picasso.OkHttp3Downloader;
 import com.squareup.otto.DeadEvent;
 import com.squareup.otto.Subscribe;
+import com.squareup.picasso.LruCache;
 import com.squareup.picasso.Picasso;
 import com.tsengvn.typekit.Typekit;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import io.fabric.sdk.android.Fabric;
 import io.realm.Realm;
@@ -25,7 +32,10 @@ import me.vickychijwani.spectre.analytics.AnalyticsService;
 import me.vickychijwani.spectre.event.ApiErrorEvent;
 import me.vickychijwani.spectre.event.BusProvider;
 import me.vickychijwani.spectre.model.DatabaseMigration;
+import me.vickychijwani.spectre.network.HttpCacheStats;
+import me.vickychijwani.spectre.network.HttpClientFactory;
 import me.vickychijwani.spectre.network.NetworkService;
+import me.vickychijwani.spectre.network.PinnedImageStore;
 import me.vickychijwani.spectre.network.ProductionHttpClientFactory;
 import okhttp3.OkHttpClient;
 import retrofit2.Response;
@@ -35,11 +45,21 @@ public class SpectreApplication extends Application {
     private static final String TAG = "SpectreApplication";
     private static SpectreApplication sInstance;
 
-    // this is named "images" but it actually caches all HTTP responses
-    private static final String HTTP_CACHE_PATH = "images";
+    // API responses and images are cached separately, so that large images don't evict API
+    // responses (and their ETags); the image cache keeps the name of the old shared cache, which
+    // was mostly filled with images anyway
+    private static final String API_CACHE_PATH = "api";
+    private static final String IMAGE_CACHE_PATH = "images";
+    // in the files dir, not the cache dir, so the system can't delete them when space is low
+    private static final String PINNED_IMAGES_PATH = "pinned-images";
 
     protected OkHttpClient mOkHttpClient = null;
+    protected OkHttpClient mImageHttpClient = null;
+    // images that must stay available offline, which the image cache might evict
+    private PinnedImageStore mPinnedImageStore = null;
     protected Picasso mPicasso = null;
+    // decoded images, kept separate from Picasso so it can be emptied when memory is low
+    private LruCache mImageMemoryCache = null;
 
     @SuppressWarnings("FieldCanBeLocal")
     private AnalyticsService mAnalyticsService = null;
@@ -56,14 +76,14 @@ public class SpectreApplication extends Application {
         setupFonts();
         initOkHttpClient();
         initPicasso();
-        new NetworkService().start(this, mOkHttpClient);
+        new NetworkService().start(this, mOkHttpClient, mImageHttpClient, mPinnedImageStore);
 
         mAnalyticsService = new AnalyticsService(BusProvider.getBus());
         mAnalyticsService.start();
     }
 
     private void setupRealm() {
-        final int DB_SCHEMA_VERSION = 3;
+        final int DB_SCHEMA_VERSION = 6;
         Realm.init(this);
         RealmConfiguration config = new RealmConfiguration.Builder()
                 .schemaVersion(DB_SCHEMA_VERSION)
@@ -90,8 +110,14 @@ public class SpectreApplication extends Application {
         if (mOkHttpClient != null) {
             return;
         }
-        File cacheDir = createCacheDir(this);
-        mOkHttpClient = new ProductionHttpClientFactory().create(cacheDir);
+        initOkHttpClients(new ProductionHttpClientFactory(this));
+    }
+
+    protected final void initOkHttpClients(@NonNull HttpClientFactory factory) {
+        mOkHttpClient = factory.create(createCacheDir(this, API_CACHE_PATH));
+        mPinnedImageStore = new PinnedImageStore(new File(getFilesDir(), PINNED_IMAGES_PATH));
+        mImageHttpClient = factory.createImageClient(mOkHttpClient,
+                createCacheDir(this, IMAGE_CACHE_PATH), mPinnedImageStore);
     }
 
     @SuppressWarnings("WeakerAccess")
@@ -99,8 +125,10 @@ public class SpectreApplication extends Application {
         if (mPicasso != null) {
             return;
         }
+        mImageMemoryCache = new LruCache(calculateImageMemoryCacheSize());
         mPicasso = new Picasso.Builder(this)
-                .downloader(new OkHttp3Downloader(mOkHttpClient))
+                .downloader(new OkHttp3Downloader(mImageHttpClient))
+                .memoryCache(mImageMemoryCache)
                 .listener((picasso, uri, exception) -> {
                     Log.e("Picasso", "Failed to load image: " + uri + "\n"
                             + Log.getStackTraceString(exception));
@@ -108,6 +136,21 @@ public class SpectreApplication extends Application {
                 .build();
     }
 
+    /**
+     * @return the memory budget for decoded images, a share of the app's heap that is configured
+     * in integers.xml, and smaller on low-RAM devices; Picasso's default is a fixed 15%
+     */
+    protected int calculateImageMemoryCacheSize() {
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        boolean largeHeap = (getApplicationInfo().flags & ApplicationInfo.FLAG_LARGE_HEAP) != 0;
+        int memoryClassMb = largeHeap ? activityManager.getLargeMemoryClass()
+                : activityManager.getMemoryClass();
+        int percent = getResources().getInteger(ActivityManagerCompat.isLowRamDevice(activityManager)
+                ? R.integer.image_memory_cache_percent_low_ram
+                : R.integer.image_memory_cache_percent);
+        return (int) (memoryClassMb * 1024L * 1024L * percent / 100);
+    }
+
     public OkHttpClient getOkHttpClient() {
         return mOkHttpClient;
     }
@@ -116,17 +159,48 @@ public class SpectreApplication extends Application {
         return mPicasso;
     }
 
+    /**
+     * @return hit / miss counts of the API and image caches, since the app was launched
+     */
+    public List<HttpCacheStats> getHttpCacheStats() {
+        List<HttpCacheStats> stats = new ArrayList<>(2);
+        HttpCacheStats apiStats = HttpCacheStats.from("API", mOkHttpClient.cache());
+        HttpCacheStats imageStats = HttpCacheStats.from("Image", mImageHttpClient.cache());
+        if (apiStats != null) stats.add(apiStats);
+        if (imageStats != null) stats.add(imageStats);
+        return stats;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // the app just went into the background, a good time to record how well the caches
+            // are doing
+            for (HttpCacheStats stats : getHttpCacheStats()) {
+                Crashlytics.log(Log.INFO, TAG, stats.toString());
+            }
+        }
+        // decoded images are the easiest memory to give back, they can be decoded again from the
+        // disk cache
+        if (mImageMemoryCache != null && (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)) {
+            mImageMemoryCache.evictAll();
+        }
+    }
+
     public void addDebugDrawer(@NonNull Activity activity) {
         // no-op, overridden in debug build
     }
 
-    @Nullable protected static File createCacheDir(Context context) {
+    @Nullable protected static File createCacheDir(Context context, String path) {
         File cacheDir = context.getApplicationContext().getExternalCacheDir();
         if (cacheDir == null) {
             cacheDir = context.getApplicationContext().getCacheDir();
         }
 
-        File cache = new File(cacheDir, HTTP_CACHE_PATH);
+        File cache = new File(cacheDir, path);
         if (cache.exists() || cache.mkdirs()) {
             return cache;
         } else {
@@ -0,0 +1,18 @@
+package me.vickychijwani.spectre.error;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a network call when the device is offline, so that the call fails
+ * right away instead of waiting for a connection timeout.
+ */
+public class NoConnectivityException extends IOException {
+
+    /**
+     * @param url - the URL that was requested
+     */
+    public NoConnectivityException(String url) {
+        super("NO NETWORK CONNECTION, request not sent: " + url);
+    }
+
+}
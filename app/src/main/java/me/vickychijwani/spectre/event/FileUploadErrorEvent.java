@@ -5,10 +5,15 @@ import me.vickychijwani.spectre.network.ApiFailure;
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class FileUploadErrorEvent {
 
+    public final String placeholderUrl;
     public final ApiFailure apiFailure;
+    // true if the image stays in the upload outbox and will be retried later
+    public final boolean willRetry;
 
-    public FileUploadErrorEvent(ApiFailure apiFailure) {
+    public FileUploadErrorEvent(String placeholderUrl, ApiFailure apiFailure, boolean willRetry) {
+        this.placeholderUrl = placeholderUrl;
         this.apiFailure = apiFailure;
+        this.willRetry = willRetry;
     }
 
 }
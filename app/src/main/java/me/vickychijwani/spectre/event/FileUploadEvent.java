@@ -1,20 +1,20 @@
 package me.vickychijwani.spectre.event;
 
-import java.io.InputStream;
+/**
+ * Adds an image to the upload outbox. It's uploaded whenever the network allows, and until then
+ * posts refer to it by {@link #placeholderUrl}.
+ */
+public class FileUploadEvent {
 
-public class FileUploadEvent implements ApiCallEvent {
-
-    public final InputStream inputStream;
+    // local copy of the image, owned by the outbox from now on
+    public final String filePath;
     public final String mimeType;
+    public final String placeholderUrl;
 
-    public FileUploadEvent(InputStream inputStream, String mimeType) {
-        this.inputStream = inputStream;
+    public FileUploadEvent(String filePath, String mimeType, String placeholderUrl) {
+        this.filePath = filePath;
         this.mimeType = mimeType;
-    }
-
-    @Override
-    public void loadCachedData() {
-        // no-op; this event cannot be handled with cached data
+        this.placeholderUrl = placeholderUrl;
     }
 
 }
@@ -0,0 +1,16 @@
+package me.vickychijwani.spectre.event;
+
+public class FileUploadProgressEvent {
+
+    // identifies the image, several can be uploading at once
+    public final String placeholderUrl;
+    public final long bytesUploaded;
+    public final long totalBytes;       // -1 if unknown
+
+    public FileUploadProgressEvent(String placeholderUrl, long bytesUploaded, long totalBytes) {
+        this.placeholderUrl = placeholderUrl;
+        this.bytesUploaded = bytesUploaded;
+        this.totalBytes = totalBytes;
+    }
+
+}
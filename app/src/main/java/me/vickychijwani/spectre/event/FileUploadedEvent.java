@@ -2,9 +2,12 @@ package me.vickychijwani.spectre.event;
 
 public class FileUploadedEvent {
 
+    // the local URL that posts used to refer to the image until now
+    public final String placeholderUrl;
     public final String relativeUrl;
 
-    public FileUploadedEvent(String relativeUrl) {
+    public FileUploadedEvent(String placeholderUrl, String relativeUrl) {
+        this.placeholderUrl = placeholderUrl;
         this.relativeUrl = relativeUrl;
     }
 
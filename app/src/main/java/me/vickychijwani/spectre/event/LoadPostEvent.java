@@ -0,0 +1,17 @@
+package me.vickychijwani.spectre.event;
+
+public class LoadPostEvent implements ApiCallEvent {
+
+    public final String uuid;
+    public boolean loadCachedData = false;
+
+    public LoadPostEvent(String uuid) {
+        this.uuid = uuid;
+    }
+
+    @Override
+    public void loadCachedData() {
+        loadCachedData = true;
+    }
+
+}
@@ -0,0 +1,17 @@
+package me.vickychijwani.spectre.event;
+
+import android.support.annotation.NonNull;
+
+import me.vickychijwani.spectre.network.ApiFailure;
+
+public class PostLoadErrorEvent {
+
+    public final String uuid;
+    public final ApiFailure apiFailure;
+
+    public PostLoadErrorEvent(@NonNull String uuid, @NonNull ApiFailure apiFailure) {
+        this.uuid = uuid;
+        this.apiFailure = apiFailure;
+    }
+
+}
@@ -2,16 +2,14 @@ package me.vickychijwani.spectre.event;
 
 import java.util.List;
 
-import me.vickychijwani.spectre.model.entity.Post;
+import me.vickychijwani.spectre.model.entity.PostSummary;
 
 public class PostsLoadedEvent {
 
-    public final List<Post> posts;
-    public final int postsFetchLimit;
+    public final List<PostSummary> posts;
 
-    public PostsLoadedEvent(List<Post> posts, int postsFetchLimit) {
+    public PostsLoadedEvent(List<PostSummary> posts) {
         this.posts = posts;
-        this.postsFetchLimit = postsFetchLimit;
     }
 
 }
@@ -0,0 +1,12 @@
+package me.vickychijwani.spectre.event;
+
+public class UploadPendingFilesEvent implements ApiCallEvent {
+
+    public boolean loadCachedData = false;
+
+    @Override
+    public void loadCachedData() {
+        loadCachedData = true;
+    }
+
+}
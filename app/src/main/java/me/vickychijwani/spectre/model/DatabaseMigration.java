@@ -11,6 +11,7 @@ import io.realm.RealmMigration;
 import io.realm.RealmResults;
 import io.realm.RealmSchema;
 import me.vickychijwani.spectre.model.entity.ETag;
+import me.vickychijwani.spectre.model.entity.PendingAction;
 import me.vickychijwani.spectre.model.entity.Post;
 
 public class DatabaseMigration implements RealmMigration {
@@ -97,6 +98,55 @@ public class DatabaseMigration implements RealmMigration {
             }
             ++oldVersion;
         }
+
+        if (oldVersion == 3) {
+            if (!schema.get("Post").hasField("sortKey")) {
+                Crashlytics.log(Log.DEBUG, TAG, "ADDING SORT KEY FIELD TO POST TABLE");
+                schema.get("Post")
+                        .addField("sortKey", long.class, FieldAttribute.INDEXED)
+                        .transform(obj -> {
+                            boolean isNew = false;
+                            for (DynamicRealmObject pendingAction : obj.getList("pendingActions")) {
+                                if (PendingAction.CREATE.equals(pendingAction.getString("type"))) {
+                                    isNew = true;
+                                }
+                            }
+                            //noinspection WrongConstant
+                            obj.setLong("sortKey", Post.computeSortKey(isNew,
+                                    obj.getString("status"), obj.getDate("publishedAt"),
+                                    obj.getDate("updatedAt"), obj.getDate("createdAt")));
+                        });
+            }
+            ++oldVersion;
+        }
+
+        if (oldVersion == 4) {
+            if (!schema.get("Post").hasField("contentLoaded")) {
+                // all posts stored so far were downloaded in full
+                Crashlytics.log(Log.DEBUG, TAG, "ADDING CONTENT LOADED FIELD TO POST TABLE");
+                schema.get("Post")
+                        .addField("contentLoaded", boolean.class)
+                        .transform(obj -> obj.setBoolean("contentLoaded", true));
+            }
+            ++oldVersion;
+        }
+
+        if (oldVersion == 5) {
+            if (!schema.contains("PendingUpload")) {
+                // create the PendingUpload table
+                Crashlytics.log(Log.DEBUG, TAG, "CREATING PENDING UPLOAD TABLE");
+                schema.create("PendingUpload")
+                        .addField("id", String.class, FieldAttribute.PRIMARY_KEY, FieldAttribute.REQUIRED)
+                        .addField("filePath", String.class, FieldAttribute.REQUIRED)
+                        .addField("mimeType", String.class, FieldAttribute.REQUIRED)
+                        .addField("placeholderUrl", String.class, FieldAttribute.REQUIRED)
+                        .addField("remoteUrl", String.class, FieldAttribute.INDEXED)
+                        .addField("attempts", int.class)
+                        .addField("nextAttemptAt", long.class)
+                        .addField("createdAt", long.class);
+            }
+            ++oldVersion;
+        }
     }
 
 }
@@ -0,0 +1,120 @@
+package me.vickychijwani.spectre.model.entity;
+
+import io.realm.RealmObject;
+import io.realm.annotations.Index;
+import io.realm.annotations.PrimaryKey;
+import io.realm.annotations.RealmClass;
+import io.realm.annotations.Required;
+
+/**
+ * An image waiting to be uploaded. Until it is, posts refer to it by {@link #placeholderUrl}, which
+ * is replaced with {@link #remoteUrl} once the server has the image.
+ */
+@RealmClass
+public class PendingUpload extends RealmObject {
+
+    @PrimaryKey @Required
+    private String id;
+
+    // copy of the image in app-private storage, so it survives until it's uploaded
+    @Required
+    private String filePath;
+
+    @Required
+    private String mimeType;
+
+    // file:// URL of the local copy, inserted into the post instead of the server URL
+    @Required
+    private String placeholderUrl;
+
+    // null until the image has been uploaded
+    @Index
+    private String remoteUrl = null;
+
+    // number of failed attempts so far, for backing off between retries
+    private int attempts = 0;
+
+    // time (in ms since the epoch) before which the upload should not be retried
+    private long nextAttemptAt = 0;
+
+    // time (in ms since the epoch) at which the image was picked
+    private long createdAt = 0;
+
+    @SuppressWarnings("unused")
+    public PendingUpload() {}
+
+    public PendingUpload(String id, String filePath, String mimeType, String placeholderUrl,
+                         long createdAt) {
+        this.id = id;
+        this.filePath = filePath;
+        this.mimeType = mimeType;
+        this.placeholderUrl = placeholderUrl;
+        this.createdAt = createdAt;
+    }
+
+    // NOTE: DO NOT ADD / MODIFY METHODS, SEE https://realm.io/docs/java/#faq
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public String getPlaceholderUrl() {
+        return placeholderUrl;
+    }
+
+    public void setPlaceholderUrl(String placeholderUrl) {
+        this.placeholderUrl = placeholderUrl;
+    }
+
+    public String getRemoteUrl() {
+        return remoteUrl;
+    }
+
+    public void setRemoteUrl(String remoteUrl) {
+        this.remoteUrl = remoteUrl;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(long nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+}
@@ -3,6 +3,7 @@ package me.vickychijwani.spectre.model.entity;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
 
 import java.lang.annotation.Retention;
@@ -12,6 +13,7 @@ import java.util.List;
 
 import io.realm.RealmList;
 import io.realm.RealmModel;
+import io.realm.annotations.Index;
 import io.realm.annotations.PrimaryKey;
 import io.realm.annotations.RealmClass;
 import io.realm.annotations.Required;
@@ -36,6 +38,11 @@ public class Post implements RealmModel, Parcelable {
     public static final String CONFLICT_NONE = "conflict:none";
     public static final String CONFLICT_UNRESOLVED = "conflict:unresolved";
 
+    // see computeSortKey()
+    private static final int SORT_KEY_DATE_BITS = 42;     // enough for dates until the year 2109
+    private static final long SORT_KEY_MAX_DATE = (1L << SORT_KEY_DATE_BITS) - 1;
+    private static final int SORT_KEY_NUM_GROUPS = 5;
+
     private static final String DEFAULT_TITLE = "(Untitled)";
     public static final String DEFAULT_SLUG_PREFIX = "untitled";
 
@@ -89,6 +96,15 @@ public class Post implements RealmModel, Parcelable {
     @Required @GsonExclude @ConflictState
     private String conflictState = CONFLICT_NONE;
 
+    // denormalized from other fields so the post list can be sorted by Realm, see computeSortKey()
+    @Index @GsonExclude
+    private long sortKey = 0;
+
+    // false if only the summary of this post has been downloaded, i.e., markdown and html are empty
+    // and must be downloaded before the post can be opened
+    @GsonExclude
+    private boolean contentLoaded = false;
+
     public Post() {}
 
     // TODO remember to update this, equals, Parcelable methods, and DB migration whenever fields are changed!
@@ -129,6 +145,8 @@ public class Post implements RealmModel, Parcelable {
             this.addPendingAction(action.getType());
         }
         this.setConflictState(post.getConflictState());
+        this.setSortKey(post.getSortKey());
+        this.setContentLoaded(post.isContentLoaded());
     }
 
     @SuppressWarnings("RedundantIfStatement")
@@ -211,6 +229,8 @@ public class Post implements RealmModel, Parcelable {
         dest.writeString(this.metaDescription);
         dest.writeList(this.pendingActions);
         dest.writeString(this.conflictState);
+        dest.writeLong(this.sortKey);
+        dest.writeByte(this.contentLoaded ? (byte) 1 : (byte) 0);
     }
 
     protected Post(Parcel in) {
@@ -244,6 +264,8 @@ public class Post implements RealmModel, Parcelable {
         in.readList(this.pendingActions, PendingAction.class.getClassLoader());
         //noinspection WrongConstant
         this.conflictState = in.readString();
+        this.sortKey = in.readLong();
+        this.contentLoaded = in.readByte() != 0;
     }
 
     public static final Parcelable.Creator<Post> CREATOR = new Parcelable.Creator<Post>() {
@@ -445,6 +467,22 @@ public class Post implements RealmModel, Parcelable {
         this.conflictState = conflictState;
     }
 
+    public long getSortKey() {
+        return sortKey;
+    }
+
+    public void setSortKey(long sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    public boolean isContentLoaded() {
+        return contentLoaded;
+    }
+
+    public void setContentLoaded(boolean contentLoaded) {
+        this.contentLoaded = contentLoaded;
+    }
+
 
     public boolean isPendingActionsEmpty() {
         return this.pendingActions.isEmpty();
@@ -486,4 +524,53 @@ public class Post implements RealmModel, Parcelable {
         return getStatus().equals(PUBLISHED);
     }
 
+    /**
+     * Must be called after changing the status, dates or pending actions of a post, before saving
+     * it.
+     */
+    public void updateSortKey() {
+        setSortKey(computeSortKey(hasPendingAction(PendingAction.CREATE), getStatus(),
+                getPublishedAt(), getUpdatedAt(), getCreatedAt()));
+    }
+
+    /**
+     * Computes a key which, sorted in DESCENDING order, gives the order of the post list:
+     * 1. New posts that are yet to be created on the server, sorted by updatedAt
+     * 2. Scheduled posts, sorted by publishedAt
+     * 3. Drafts, sorted by updatedAt
+     * 4. Published posts, sorted by publishedAt
+     * with the latest date first within each group. If that date is missing, updatedAt is used,
+     * then createdAt. The post's group goes in the high bits and its date in the low bits.
+     *
+     * See Ghost Admin's sort order in the file core/server/models/post.js, search for 'orderDefaultOptions'
+     */
+    public static long computeSortKey(boolean isNew, @Status String status,
+                                      @Nullable Date publishedAt, @Nullable Date updatedAt,
+                                      @Nullable Date createdAt) {
+        // lower groups are shown first
+        int group;
+        if (isNew) {
+            group = 0;
+        } else if (SCHEDULED.equals(status)) {
+            group = 1;
+        } else if (DRAFT.equals(status)) {
+            group = 2;
+        } else if (PUBLISHED.equals(status)) {
+            group = 3;
+        } else {
+            group = 4;
+        }
+
+        // use date published for scheduled or published posts, else date modified, else date created
+        Date date = null;
+        if (SCHEDULED.equals(status) || PUBLISHED.equals(status)) {
+            date = publishedAt;
+        }
+        if (date == null) date = updatedAt;
+        if (date == null) date = createdAt;
+        long millis = (date != null) ? Math.max(0, Math.min(date.getTime(), SORT_KEY_MAX_DATE)) : 0;
+
+        return ((long) (SORT_KEY_NUM_GROUPS - 1 - group) << SORT_KEY_DATE_BITS) | millis;
+    }
+
 }
@@ -0,0 +1,137 @@
+package me.vickychijwani.spectre.model.entity;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read-only snapshot of the fields of a {@link Post} that are needed to show it in the post list.
+ * Unlike a full copy of the post, this doesn't hold the markdown and html, which are the bulk of
+ * its size. NOTE: this is NOT stored in Realm.
+ */
+public final class PostSummary {
+
+    private final String uuid;
+    private final int id;
+    private final String title;
+    @Post.Status private final String status;
+    private final String image;
+    private final List<String> tagNames;
+    private final Date publishedAt;
+    private final Date updatedAt;
+    private final List<String> pendingActionTypes;
+
+    public PostSummary(@NonNull Post post) {
+        this.uuid = post.getUuid();
+        this.id = post.getId();
+        this.title = post.getTitle();
+        this.status = post.getStatus();
+        this.image = post.getImage();
+
+        List<Tag> tags = post.getTags();
+        List<String> tagNames = new ArrayList<>(tags.size());
+        for (Tag tag : tags) {
+            tagNames.add(tag.getName());
+        }
+        this.tagNames = Collections.unmodifiableList(tagNames);
+
+        this.publishedAt = post.getPublishedAt();
+        this.updatedAt = post.getUpdatedAt();
+
+        List<PendingAction> pendingActions = post.getPendingActions();
+        List<String> pendingActionTypes = new ArrayList<>(pendingActions.size());
+        for (PendingAction action : pendingActions) {
+            pendingActionTypes.add(action.getType());
+        }
+        this.pendingActionTypes = Collections.unmodifiableList(pendingActionTypes);
+    }
+
+    @SuppressWarnings("RedundantIfStatement")
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PostSummary that = (PostSummary) o;
+        if (id != that.id) return false;
+        if (uuid != null ? !uuid.equals(that.uuid) : that.uuid != null) return false;
+        if (title != null ? !title.equals(that.title) : that.title != null) return false;
+        if (status != null ? !status.equals(that.status) : that.status != null) return false;
+        if (image != null ? !image.equals(that.image) : that.image != null) return false;
+        if (!tagNames.equals(that.tagNames)) return false;
+        if (publishedAt != null ? !publishedAt.equals(that.publishedAt) : that.publishedAt != null)
+            return false;
+        if (updatedAt != null ? !updatedAt.equals(that.updatedAt) : that.updatedAt != null)
+            return false;
+        if (!pendingActionTypes.equals(that.pendingActionTypes)) return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return uuid != null ? uuid.hashCode() : 0;
+    }
+
+
+    // accessors
+    public String getUuid() {
+        return uuid;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public @Post.Status String getStatus() {
+        return status;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public List<String> getTagNames() {
+        return tagNames;
+    }
+
+    public Date getPublishedAt() {
+        return publishedAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+
+    public boolean isPendingActionsEmpty() {
+        return pendingActionTypes.isEmpty();
+    }
+
+    public boolean hasPendingAction(@PendingAction.Type String type) {
+        return pendingActionTypes.contains(type);
+    }
+
+    public boolean isMarkedForDeletion() {
+        return hasPendingAction(PendingAction.DELETE);
+    }
+
+    public boolean isDraft() {
+        return Post.DRAFT.equals(status);
+    }
+
+    public boolean isScheduled() {
+        return Post.SCHEDULED.equals(status);
+    }
+
+    public boolean isPublished() {
+        return Post.PUBLISHED.equals(status);
+    }
+
+}
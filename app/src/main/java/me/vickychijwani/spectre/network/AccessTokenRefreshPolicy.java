@@ -0,0 +1,58 @@
+package me.vickychijwani.spectre.network;
+
+/**
+ * Decides when an access token should be refreshed in the background. The token is refreshed
+ * some time before it expires, so requests can keep using the current token right away instead of
+ * waiting for a refresh round trip (and a client secret fetch) when it finally expires.
+ *
+ * All times are in seconds since the epoch, like {@link
+ * me.vickychijwani.spectre.model.entity.AuthToken#getCreatedAt()}.
+ */
+final class AccessTokenRefreshPolicy {
+
+    // start refreshing once this fraction of the token's lifetime has elapsed...
+    static final double REFRESH_AFTER_LIFETIME_FRACTION = 0.8;
+    // ...but at least this long before it expires, because the createdAt timestamp can be off by
+    // several seconds and the refresh itself takes a few round trips
+    static final long MIN_LEAD_TIME = 120;
+    // how long to wait before trying again after a background refresh fails
+    static final long RETRY_DELAY = 60;
+
+    private AccessTokenRefreshPolicy() {}
+
+    /**
+     * @return the time at which a background refresh of the token should start, never later than
+     * its creation time + lifetime
+     */
+    static long getRefreshAt(long createdAt, long expiresIn) {
+        long lead = Math.max(Math.round(expiresIn * (1 - REFRESH_AFTER_LIFETIME_FRACTION)),
+                MIN_LEAD_TIME);
+        return createdAt + Math.max(expiresIn - lead, 0);
+    }
+
+    /**
+     * @return true if the token is due for a background refresh at time {@code now}
+     */
+    static boolean shouldRefresh(long now, long createdAt, long expiresIn) {
+        return now >= getRefreshAt(createdAt, expiresIn);
+    }
+
+    /**
+     * @return how many seconds from {@code now} a background refresh should run, or 0 if it is
+     * already due
+     */
+    static long getRefreshDelay(long now, long createdAt, long expiresIn) {
+        return Math.max(getRefreshAt(createdAt, expiresIn) - now, 0);
+    }
+
+    /**
+     * @return how many seconds from {@code now} to retry after a failed background refresh. The
+     * retry is never scheduled past the point at which the token is considered expired, after
+     * which the next request refreshes it anyway.
+     */
+    static long getRetryDelay(long now, long createdAt, long expiresIn) {
+        long untilExpiry = createdAt + expiresIn - now;
+        return Math.max(Math.min(RETRY_DELAY, untilExpiry), 0);
+    }
+
+}
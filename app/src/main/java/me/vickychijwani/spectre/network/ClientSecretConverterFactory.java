@@ -0,0 +1,44 @@
+package me.vickychijwani.spectre.network;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import me.vickychijwani.spectre.network.entity.ClientSecret;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Extracts the client secret from the Ghost admin page while it is being downloaded, and stops
+ * reading the page as soon as the secret is found, instead of downloading the whole page first.
+ */
+/* package */ class ClientSecretConverterFactory extends Converter.Factory {
+
+    public static ClientSecretConverterFactory create() {
+        return new ClientSecretConverterFactory();
+    }
+
+    private ClientSecretConverterFactory() {}
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                            Retrofit retrofit) {
+        if (type != ClientSecret.class) {
+            return null;
+        }
+        return new Converter<ResponseBody, ClientSecret>() {
+            @Override public ClientSecret convert(ResponseBody value) throws IOException {
+                try {
+                    return new ClientSecret(GhostApiUtils.extractClientSecret(
+                            new BufferedReader(value.charStream())));
+                } finally {
+                    // discards the rest of the page
+                    value.close();
+                }
+            }
+        };
+    }
+
+}
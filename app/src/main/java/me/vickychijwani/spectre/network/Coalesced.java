@@ -0,0 +1,17 @@
+package me.vickychijwani.spectre.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an API call whose concurrent identical requests should share a single network call and
+ * response, see {@link CoalescingCallAdapterFactory}. Only use this for GET requests whose
+ * response body is never modified by the caller, because the same body is handed to every caller.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@interface Coalesced {}
@@ -0,0 +1,246 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * Makes concurrent identical requests to {@link Coalesced} API calls share a single network call:
+ * if a call is enqueued while an identical one (same method, URL, auth and ETag) is in flight, it
+ * waits for that one's response instead of making its own request. The response body is parsed
+ * once and handed to every caller; error bodies are copied for each caller, so that each can read
+ * its own.
+ *
+ * This matters because a data refresh, the periodic refresh timer and the post list's onResume can
+ * each ask for the same resources at about the same time. Synchronous calls (execute()) are never
+ * coalesced.
+ */
+/* package */ final class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+
+    private static final String TAG = "CoalescingCallAdapter";
+
+    // in-flight calls, by request key
+    private final Map<String, InFlightCall<?>> mInFlightCalls = new HashMap<>();
+
+    public static CoalescingCallAdapterFactory create() {
+        return new CoalescingCallAdapterFactory();
+    }
+
+    private CoalescingCallAdapterFactory() {}
+
+    @Override
+    public CallAdapter<?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class || ! isCoalesced(annotations)) {
+            return null;
+        }
+        // wrap the next adapter, which delivers callbacks on the main thread on Android
+        //noinspection unchecked
+        final CallAdapter<Call<?>> delegate = (CallAdapter<Call<?>>)
+                retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Call<?>>() {
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @Override
+            public <R> Call<?> adapt(Call<R> call) {
+                //noinspection unchecked
+                return new CoalescingCall<>((Call<R>) delegate.adapt(call));
+            }
+        };
+    }
+
+    @NonNull
+    static String getRequestKey(@NonNull Request request) {
+        return request.method() + " " + request.url()
+                + " auth=" + request.header("Authorization")
+                + " etag=" + request.header("If-None-Match");
+    }
+
+    private static boolean isCoalesced(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Coalesced) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static final class Waiter<R> {
+        final Call<R> call;
+        final Callback<R> callback;
+
+        Waiter(Call<R> call, Callback<R> callback) {
+            this.call = call;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * A network call shared by one or more identical {@link CoalescingCall}s.
+     */
+    private final class InFlightCall<R> implements Callback<R> {
+        private final String mKey;
+        private final Call<R> mNetworkCall;
+        private final List<Waiter<R>> mWaiters = new ArrayList<>(2);
+
+        InFlightCall(String key, Call<R> networkCall) {
+            mKey = key;
+            mNetworkCall = networkCall;
+        }
+
+        @Override
+        public void onResponse(Call<R> call, Response<R> response) {
+            List<Waiter<R>> waiters = finish();
+            // make all the copies before any callback gets a chance to read the original
+            List<Response<R>> responses = new ArrayList<>(waiters.size());
+            for (int i = 0; i < waiters.size(); ++i) {
+                responses.add((i == 0) ? response : copy(response));
+            }
+            for (int i = 0; i < waiters.size(); ++i) {
+                Waiter<R> waiter = waiters.get(i);
+                waiter.callback.onResponse(waiter.call, responses.get(i));
+            }
+        }
+
+        @Override
+        public void onFailure(Call<R> call, Throwable error) {
+            for (Waiter<R> waiter : finish()) {
+                waiter.callback.onFailure(waiter.call, error);
+            }
+        }
+
+        private List<Waiter<R>> finish() {
+            synchronized (mInFlightCalls) {
+                // an identical call may have been enqueued since this one was canceled
+                if (mInFlightCalls.get(mKey) == this) {
+                    mInFlightCalls.remove(mKey);
+                }
+                return new ArrayList<>(mWaiters);
+            }
+        }
+    }
+
+    /**
+     * @return a response that can be handed to another caller; successful responses share the
+     * parsed body, but error bodies can only be read once, so they are copied
+     */
+    private static <R> Response<R> copy(Response<R> response) {
+        ResponseBody errorBody = response.errorBody();
+        if (response.isSuccessful() || errorBody == null) {
+            return response;
+        }
+        try {
+            // error bodies are already buffered in memory by Retrofit, so this does no I/O
+            ResponseBody errorBodyCopy = ResponseBody.create(errorBody.contentType(),
+                    errorBody.source().buffer().clone().readByteArray());
+            return Response.error(errorBodyCopy, response.raw());
+        } catch (IOException e) {
+            Log.e(TAG, Log.getStackTraceString(e));
+            return response;
+        }
+    }
+
+    private final class CoalescingCall<R> implements Call<R> {
+        private final Call<R> mDelegate;
+        private InFlightCall<R> mInFlightCall = null;
+        private boolean mbCanceled = false;
+
+        CoalescingCall(Call<R> delegate) {
+            mDelegate = delegate;
+        }
+
+        @Override
+        public void enqueue(Callback<R> callback) {
+            String key = getRequestKey(mDelegate.request());
+            InFlightCall<R> inFlightCall;
+            boolean isNew = false;
+            synchronized (mInFlightCalls) {
+                //noinspection unchecked
+                inFlightCall = (InFlightCall<R>) mInFlightCalls.get(key);
+                if (inFlightCall == null) {
+                    inFlightCall = new InFlightCall<>(key, mDelegate);
+                    mInFlightCalls.put(key, inFlightCall);
+                    isNew = true;
+                }
+                inFlightCall.mWaiters.add(new Waiter<>(this, callback));
+                mInFlightCall = inFlightCall;
+            }
+            if (isNew) {
+                mDelegate.enqueue(inFlightCall);
+            } else {
+                Log.d(TAG, "Joined in-flight request: " + key);
+            }
+        }
+
+        @Override
+        public Response<R> execute() throws IOException {
+            return mDelegate.execute();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return mInFlightCall != null || mDelegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            mbCanceled = true;
+            if (mInFlightCall == null) {
+                mDelegate.cancel();
+                return;
+            }
+            boolean cancelNetworkCall;
+            synchronized (mInFlightCalls) {
+                List<Waiter<R>> waiters = mInFlightCall.mWaiters;
+                for (int i = waiters.size() - 1; i >= 0; --i) {
+                    if (waiters.get(i).call == this) {
+                        waiters.remove(i);
+                    }
+                }
+                // only cancel the network call if no one else is waiting for it
+                cancelNetworkCall = waiters.isEmpty();
+                if (cancelNetworkCall) {
+                    mInFlightCalls.remove(mInFlightCall.mKey);
+                }
+            }
+            if (cancelNetworkCall) {
+                mInFlightCall.mNetworkCall.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return mbCanceled || mDelegate.isCanceled();
+        }
+
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        @Override
+        public Call<R> clone() {
+            return new CoalescingCall<>(mDelegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return mDelegate.request();
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+import me.vickychijwani.spectre.error.NoConnectivityException;
+import me.vickychijwani.spectre.util.functions.Func0;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Avoids waiting for socket timeouts when there is no usable network connection:
+ *
+ * - when offline, GET requests are served only from the HTTP cache (however stale), and other
+ *   requests are not sent at all; either way, a {@link NoConnectivityException} is thrown right
+ *   away if there's nothing to return
+ * - when online, a GET request that fails in the transport layer falls back to a cached response
+ *   up to {@link #MAX_STALE_DAYS} old, if there is one ("stale-if-error")
+ *
+ * Callers already fall back to data stored in Realm on failure, this just gets them there faster.
+ */
+final class ConnectivityInterceptor implements Interceptor {
+
+    // how old a cached response may be, to be used when the network is unavailable
+    static final int MAX_STALE_DAYS = 28;
+
+    private static final CacheControl FORCE_STALE_CACHE = new CacheControl.Builder()
+            .onlyIfCached()
+            .maxStale(MAX_STALE_DAYS, TimeUnit.DAYS)
+            .build();
+
+    private final Func0<Boolean> mIsConnected;
+
+    /**
+     * @param isConnected - returns whether there is a usable network connection, called for every
+     *                    request
+     */
+    ConnectivityInterceptor(@NonNull Func0<Boolean> isConnected) {
+        mIsConnected = isConnected;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean isGet = "GET".equals(request.method());
+        if (! mIsConnected.call()) {
+            if (isGet) {
+                Response cachedResponse = proceedFromCache(chain, request);
+                if (cachedResponse != null) {
+                    return cachedResponse;
+                }
+            }
+            throw new NoConnectivityException(request.url().toString());
+        }
+        if (! isGet) {
+            return chain.proceed(request);
+        }
+        try {
+            return chain.proceed(request);
+        } catch (IOException e) {
+            Response cachedResponse = proceedFromCache(chain, request);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the cached response for the request even if it's stale, or null if there's no usable
+     * cached response
+     */
+    private static Response proceedFromCache(Chain chain, Request request) throws IOException {
+        Response response = chain.proceed(request.newBuilder()
+                .cacheControl(FORCE_STALE_CACHE)
+                .build());
+        // OkHttp returns a synthetic 504 Gateway Timeout if an only-if-cached request can't be
+        // satisfied from the cache
+        if (response.code() == HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+                && response.cacheResponse() == null && response.networkResponse() == null) {
+            response.body().close();
+            return null;
+        }
+        return response;
+    }
+
+}
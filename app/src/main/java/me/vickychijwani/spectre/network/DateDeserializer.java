@@ -1,38 +1,132 @@
 package me.vickychijwani.spectre.network;
 
 import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
 import android.util.Log;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
 
-class DateDeserializer implements JsonDeserializer<Date> {
+/**
+ * Reads dates in Ghost's format, yyyy-MM-dd'T'HH:mm:ss.SSS'Z'. Parsing is done directly on the
+ * characters instead of going through a SimpleDateFormat, because a sync parses thousands of dates
+ * and a SimpleDateFormat is expensive to create and not thread-safe to share.
+ */
+class DateDeserializer extends TypeAdapter<Date> {
 
     private static final String TAG = "DateDeserializer";
+    private static final String FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
 
     @Override
-    public Date deserialize(JsonElement element, Type type, JsonDeserializationContext context)
-            throws JsonParseException {
-        String date = element.getAsString();
-
-        @SuppressLint("SimpleDateFormat")
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
-
+    public Date read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String date = in.nextString();
         try {
-            return formatter.parse(date);
+            return parse(date);
         } catch (ParseException e) {
             Log.e(TAG, "Parsing failed: " + Log.getStackTraceString(e));
             return new Date();
         }
     }
 
+    @Override
+    public void write(JsonWriter out, Date date) throws IOException {
+        // never on a hot path, we don't send dates to the server
+        if (date == null) {
+            out.nullValue();
+            return;
+        }
+        @SuppressLint("SimpleDateFormat")
+        SimpleDateFormat formatter = new SimpleDateFormat(FORMAT);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        out.value(formatter.format(date));
+    }
+
+    /**
+     * Parses a UTC date of the form yyyy-MM-dd'T'HH:mm:ss.SSS'Z'. The fraction of a second is
+     * optional and may have fewer (or more) than 3 digits. Like SimpleDateFormat#parse(String),
+     * anything after the 'Z' is ignored. Thread-safe, and allocates nothing but the returned Date.
+     */
+    @NonNull
+    static Date parse(@NonNull CharSequence date) throws ParseException {
+        int year = parseDigits(date, 0, 4);
+        expect(date, 4, '-');
+        int month = parseDigits(date, 5, 2);
+        expect(date, 7, '-');
+        int day = parseDigits(date, 8, 2);
+        expect(date, 10, 'T');
+        int hour = parseDigits(date, 11, 2);
+        expect(date, 13, ':');
+        int minute = parseDigits(date, 14, 2);
+        expect(date, 16, ':');
+        int second = parseDigits(date, 17, 2);
+        int pos = 19;
+        int millis = 0;
+        if (pos < date.length() && date.charAt(pos) == '.') {
+            int fractionStart = ++pos;
+            for (int scale = 100; pos < date.length() && isDigit(date.charAt(pos)); ++pos, scale /= 10) {
+                millis += (date.charAt(pos) - '0') * scale;
+            }
+            if (pos == fractionStart) {
+                throw new ParseException("Expected digits at position " + pos + " in: " + date, pos);
+            }
+        }
+        expect(date, pos, 'Z');
+        if (month < 1 || month > 12) {
+            throw new ParseException("Invalid month in: " + date, 5);
+        }
+        // out-of-range days and times roll over into the next month / day etc, like a lenient
+        // SimpleDateFormat
+        long days = daysSinceEpoch(year, month, day);
+        long seconds = ((days * 24 + hour) * 60 + minute) * 60 + second;
+        return new Date(seconds * 1000 + millis);
+    }
+
+
+    // helpers
+    private static int parseDigits(CharSequence str, int start, int count) throws ParseException {
+        int value = 0;
+        for (int pos = start; pos < start + count; ++pos) {
+            char c = (pos < str.length()) ? str.charAt(pos) : 0;
+            if (! isDigit(c)) {
+                throw new ParseException("Expected a digit at position " + pos + " in: " + str, pos);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void expect(CharSequence str, int pos, char expected) throws ParseException {
+        if (pos >= str.length() || str.charAt(pos) != expected) {
+            throw new ParseException("Expected '" + expected + "' at position " + pos + " in: "
+                    + str, pos);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // days from 1970-01-01 to the given date in the proleptic Gregorian calendar, see
+    // http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+    private static long daysSinceEpoch(int year, int month, int day) {
+        year -= (month <= 2) ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;                                             // [0, 399]
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;     // [0, 365]
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear; // [0, 146096]
+        return era * 146097 + dayOfEra - 719468;
+    }
+
 }
@@ -5,8 +5,10 @@ import com.google.gson.JsonObject;
 
 import me.vickychijwani.spectre.model.entity.AuthToken;
 import me.vickychijwani.spectre.network.entity.AuthReqBody;
+import me.vickychijwani.spectre.network.entity.ClientSecret;
 import me.vickychijwani.spectre.network.entity.ConfigurationList;
 import me.vickychijwani.spectre.network.entity.PostList;
+import me.vickychijwani.spectre.network.entity.PostManifest;
 import me.vickychijwani.spectre.network.entity.PostStubList;
 import me.vickychijwani.spectre.network.entity.RefreshReqBody;
 import me.vickychijwani.spectre.network.entity.RevokeReqBody;
@@ -28,9 +30,15 @@ import retrofit2.http.Url;
 
 interface GhostApiService {
 
+    // all Post fields except markdown and html, which are the bulk of a post's size
+    String POST_SUMMARY_FIELDS = "id,uuid,title,slug,status,image,featured,page,language,"
+            + "author,created_by,updated_by,published_by,created_at,updated_at,published_at,"
+            + "meta_title,meta_description";
+
     // auth
+    // the page is only read up to the client secret, see ClientSecretConverterFactory
     @GET
-    Call<String> getLoginPage(@Url String url);
+    Call<ClientSecret> getLoginPage(@Url String url);
 
     @POST("authentication/token/")
     Call<AuthToken> getAuthToken(@Body AuthReqBody credentials);
@@ -43,6 +51,7 @@ interface GhostApiService {
                                       @Body RevokeReqBody revoke);
 
     // users
+    @Coalesced
     @GET("users/me/?include=roles&status=all")
     Call<UserList> getCurrentUser(@Header("Authorization") String authHeader,
                                   @Header("If-None-Match") String etag);
@@ -52,10 +61,21 @@ interface GhostApiService {
     Call<PostList> createPost(@Header("Authorization") String authHeader,
                               @Body PostStubList posts);
 
-    // FIXME (issue #81) only allowing N posts right now to avoid too much data transfer
-    @GET("posts/?status=all&staticPages=all&include=tags")
+    // paginated, walk all pages using the "next" page number in the response's pagination meta
+    // filter and order are optional (pass null to omit them)
+    // returns post summaries (no markdown / html), use getPost() to get the content of a post
+    // NOTE: this and getPost() are not @Coalesced, because callers modify the posts in the response
+    @GET("posts/?status=all&staticPages=all&include=tags&fields=" + POST_SUMMARY_FIELDS)
     Call<PostList> getPosts(@Header("Authorization") String authHeader,
-                            @Header("If-None-Match") String etag, @Query("limit") int numPosts);
+                            @Query("filter") String filter, @Query("order") String order,
+                            @Query("limit") int numPosts, @Query("page") int page);
+
+    // NOTE: keep the fields in sync with PostManifest.Entry
+    // filter is optional (pass null to list ALL posts)
+    @Coalesced
+    @GET("posts/?status=all&staticPages=all&limit=all&fields=id,uuid,author,updated_at")
+    Call<PostManifest> getPostManifest(@Header("Authorization") String authHeader,
+                                       @Query("filter") String filter);
 
     @GET("posts/{id}/?status=all&include=tags")
     Call<PostList> getPost(@Header("Authorization") String authHeader, @Path("id") int id);
@@ -68,14 +88,17 @@ interface GhostApiService {
     Call<String> deletePost(@Header("Authorization") String authHeader, @Path("id") int id);
 
     // settings / configuration
+    @Coalesced
     @GET("settings/?type=blog")
     Call<SettingsList> getSettings(@Header("Authorization") String authHeader,
                                    @Header("If-None-Match") String etag);
 
+    @Coalesced
     @GET("configuration/")
     Call<ConfigurationList> getConfiguration(@Header("Authorization") String authHeader,
                                              @Header("If-None-Match") String etag);
 
+    @Coalesced
     @GET("configuration/about/")
     Call<JsonObject> getVersion(@Header("Authorization") String authHeader);
 
@@ -1,5 +1,6 @@
 package me.vickychijwani.spectre.network;
 
+import android.annotation.SuppressLint;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
@@ -10,10 +11,15 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
 import java.util.Date;
+import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import me.vickychijwani.spectre.network.entity.ClientSecret;
 import me.vickychijwani.spectre.network.entity.ConfigurationList;
 import me.vickychijwani.spectre.util.functions.Action1;
 import me.vickychijwani.spectre.util.NetworkUtils;
@@ -28,17 +34,24 @@ final class GhostApiUtils {
 
     private static final String TAG = GhostApiUtils.class.getSimpleName();
 
+    // longer tags are truncated while scanning for the client secret
+    private static final int MAX_TAG_LENGTH = 1024;
+    private static final Pattern CLIENT_SECRET_PATTERN = Pattern.compile(
+            "<meta[ ]+name=['\"]?env-clientSecret['\"]?[ ]+content=['\"]?([^'\"\\s>]+)");
+
     static Retrofit getRetrofit(@NonNull String baseUrl, @NonNull OkHttpClient httpClient) {
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(Date.class, new DateDeserializer())
-                .registerTypeAdapter(ConfigurationList.class, new ConfigurationListDeserializer())
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .setExclusionStrategies(new RealmExclusionStrategy(), new AnnotationExclusionStrategy())
+        Gson gson = makeGsonBuilder()
+                // streaming adapters for entities, to avoid reflection when parsing large responses
+                .registerTypeAdapterFactory(new GhostTypeAdapterFactory())
                 .create();
         return new Retrofit.Builder()
                 .baseUrl(baseUrl)
                 .client(httpClient)
-                // for HTML output (e.g., to get the client secret)
+                // for sharing a single network call between concurrent identical requests
+                .addCallAdapterFactory(CoalescingCallAdapterFactory.create())
+                // for extracting the client secret from the admin page
+                .addConverterFactory(ClientSecretConverterFactory.create())
+                // for HTML output
                 .addConverterFactory(StringConverterFactory.create())
                 // for raw JSONObject output (e.g., for the /configuration/about call)
                 .addConverterFactory(JSONObjectConverterFactory.create())
@@ -47,15 +60,51 @@ final class GhostApiUtils {
                 .build();
     }
 
+    /**
+     * @return a builder for a Gson that (de)serializes Ghost entities using reflection
+     */
+    @NonNull
+    static GsonBuilder makeGsonBuilder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(Date.class, new DateDeserializer())
+                .registerTypeAdapter(ConfigurationList.class, new ConfigurationListDeserializer())
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .setExclusionStrategies(new RealmExclusionStrategy(), new AnnotationExclusionStrategy());
+    }
+
+    /**
+     * Builds a Ghost filter expression (GQL) matching entities updated at or after the given
+     * instant. Ghost compares against its DB datetime format at second granularity, so the instant
+     * is truncated to the second and compared with >=: entities updated in the same second as the
+     * watermark (including the one that set it) are returned again (an overlap, never a gap).
+     */
+    @NonNull
+    static String makeUpdatedSinceFilter(@NonNull Date updatedSince) {
+        @SuppressLint("SimpleDateFormat")
+        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return "updated_at:>='" + formatter.format(updatedSince) + "'";
+    }
+
+    static String makeIdsFilter(@NonNull Collection<Integer> ids) {
+        StringBuilder filter = new StringBuilder("id:[");
+        boolean first = true;
+        for (Integer id : ids) {
+            if (! first) filter.append(',');
+            filter.append(id);
+            first = false;
+        }
+        return filter.append(']').toString();
+    }
+
     static void doWithClientSecret(@NonNull GhostApiService apiService, @NonNull String blogUrl,
                                    @NonNull Action1<String> callback) {
         // get dynamic client secret, if the blog supports it
-        apiService.getLoginPage(NetworkUtils.makeAbsoluteUrl(blogUrl, "ghost/")).enqueue(new Callback<String>() {
+        apiService.getLoginPage(NetworkUtils.makeAbsoluteUrl(blogUrl, "ghost/")).enqueue(new Callback<ClientSecret>() {
             @Override
-            public void onResponse(Call<String> call, Response<String> response) {
+            public void onResponse(Call<ClientSecret> call, Response<ClientSecret> response) {
                 if (response.isSuccessful()) {
-                    String html = response.body();
-                    String clientSecret = GhostApiUtils.extractClientSecretFromHtml(html);
+                    String clientSecret = response.body().value;
                     if (clientSecret == null) {
                         Crashlytics.log(Log.WARN, TAG, "No client secret found, assuming old Ghost version without client secret support");
                     }
@@ -74,7 +123,7 @@ final class GhostApiUtils {
             }
 
             @Override
-            public void onFailure(Call<String> call, Throwable error) {
+            public void onFailure(Call<ClientSecret> call, Throwable error) {
                 // error in transport layer, or lower
                 Log.e(TAG, "No client secret found, assuming old Ghost version without client secret support");
                 Log.e(TAG, Log.getStackTraceString(error));
@@ -83,17 +132,44 @@ final class GhostApiUtils {
         });
     }
 
-    // IMPORTANT: client secret may be null in older Ghost versions (< 0.7.x)
+    /**
+     * Scans the HTML of the Ghost admin page tag by tag, and stops reading as soon as the client
+     * secret meta tag is found, or the end of the head is reached (meta tags can't appear after
+     * that). Only the current tag is held in memory, so this is linear in the length of the page.
+     * IMPORTANT: client secret may be null in older Ghost versions (< 0.7.x)
+     */
     @Nullable
-    static String extractClientSecretFromHtml(@NonNull String html) {
-        // quotes around attribute values are optional in HTML5: http://stackoverflow.com/q/6495310/504611
-        Pattern clientSecretPattern = Pattern.compile("^.*<meta[ ]+name=['\"]?env-clientSecret['\"]?[ ]+content=['\"]?([^'\"]+)['\"]?.*$", Pattern.DOTALL);
-        Matcher matcher = clientSecretPattern.matcher(html);
-        String clientSecret = null;
-        if (matcher.matches()) {
-            clientSecret = matcher.group(1);
+    static String extractClientSecret(@NonNull Reader html) throws IOException {
+        StringBuilder tag = new StringBuilder(MAX_TAG_LENGTH);
+        boolean inTag = false;
+        int c;
+        while ((c = html.read()) != -1) {
+            if (c == '<') {
+                inTag = true;
+                tag.setLength(0);
+            }
+            if (! inTag) {
+                continue;
+            }
+            if (tag.length() < MAX_TAG_LENGTH) {
+                tag.append((char) c);
+            }
+            if (c == '>') {
+                inTag = false;
+                if (startsWith(tag, "<meta") && tag.indexOf("env-clientSecret") >= 0) {
+                    // quotes around attribute values are optional in HTML5: http://stackoverflow.com/q/6495310/504611
+                    Matcher matcher = CLIENT_SECRET_PATTERN.matcher(tag);
+                    return matcher.find() ? matcher.group(1) : null;
+                } else if (startsWith(tag, "</head")) {
+                    return null;
+                }
+            }
         }
-        return clientSecret;
+        return null;
+    }
+
+    private static boolean startsWith(@NonNull StringBuilder str, @NonNull String prefix) {
+        return str.length() >= prefix.length() && str.substring(0, prefix.length()).equals(prefix);
     }
 
 }
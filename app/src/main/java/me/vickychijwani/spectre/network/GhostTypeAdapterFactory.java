@@ -0,0 +1,427 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import io.realm.RealmList;
+import io.realm.RealmModel;
+import me.vickychijwani.spectre.model.entity.AuthToken;
+import me.vickychijwani.spectre.model.entity.Post;
+import me.vickychijwani.spectre.model.entity.Role;
+import me.vickychijwani.spectre.model.entity.Setting;
+import me.vickychijwani.spectre.model.entity.Tag;
+import me.vickychijwani.spectre.model.entity.User;
+import me.vickychijwani.spectre.network.entity.PostList;
+import me.vickychijwani.spectre.network.entity.ResponseMeta;
+import me.vickychijwani.spectre.network.entity.SettingsList;
+import me.vickychijwani.spectre.network.entity.UserList;
+
+/**
+ * Streaming TypeAdapters for the entities we receive from Ghost, so that deserializing them (most
+ * importantly, hundreds of posts during a sync) doesn't go through Gson's reflection-based adapter,
+ * which looks up and checks every field of every object against the exclusion strategies.
+ *
+ * Reading is hand-written and MUST match what the reflection-based Gson in
+ * {@link GhostApiUtils#makeGsonBuilder()} does: same JSON names (lower case with underscores),
+ * fields marked with {@link me.vickychijwani.spectre.model.GsonExclude} are ignored, fields missing
+ * from the JSON keep their default values, and JSON nulls are ignored for primitive fields.
+ * Writing is delegated to the reflection-based adapter since these entities are never sent to the
+ * server as-is (we send stubs instead).
+ *
+ * These are hand-written rather than generated by an annotation processor: there are only a few
+ * entities, a processor would need a separate Java module (plus its own tests) next to Realm's
+ * processor, and the generated code would have to call the setters of Realm's proxy classes
+ * anyway. Instead, GhostTypeAdaptersTest builds a JSON fixture from every serialized field of the
+ * entities (by reflection), so a field added to an entity but not to its adapter fails the build.
+ * GhostTypeAdaptersBenchmark compares the two approaches.
+ */
+/* package */ class GhostTypeAdapterFactory implements TypeAdapterFactory {
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        TypeAdapter<?> adapter;
+        if (rawType == Post.class) {
+            adapter = new PostAdapter(gson.getDelegateAdapter(this, TypeToken.get(Post.class)),
+                    gson.getAdapter(Tag.class), gson.getAdapter(Date.class));
+        } else if (rawType == Tag.class) {
+            adapter = new TagAdapter(gson.getDelegateAdapter(this, TypeToken.get(Tag.class)),
+                    gson.getAdapter(Date.class));
+        } else if (rawType == User.class) {
+            adapter = new UserAdapter(gson.getDelegateAdapter(this, TypeToken.get(User.class)),
+                    gson.getAdapter(Role.class));
+        } else if (rawType == Role.class) {
+            adapter = new RoleAdapter(gson.getDelegateAdapter(this, TypeToken.get(Role.class)));
+        } else if (rawType == Setting.class) {
+            adapter = new SettingAdapter(gson.getDelegateAdapter(this, TypeToken.get(Setting.class)));
+        } else if (rawType == AuthToken.class) {
+            adapter = new AuthTokenAdapter(gson.getDelegateAdapter(this, TypeToken.get(AuthToken.class)));
+        } else if (rawType == PostList.class) {
+            adapter = new PostListAdapter(gson.getDelegateAdapter(this, TypeToken.get(PostList.class)),
+                    gson.getAdapter(Post.class), gson.getAdapter(ResponseMeta.class));
+        } else if (rawType == UserList.class) {
+            adapter = new UserListAdapter(gson.getDelegateAdapter(this, TypeToken.get(UserList.class)),
+                    gson.getAdapter(User.class));
+        } else if (rawType == SettingsList.class) {
+            adapter = new SettingsListAdapter(gson.getDelegateAdapter(this, TypeToken.get(SettingsList.class)),
+                    gson.getAdapter(Setting.class));
+        } else {
+            return null;
+        }
+        return (TypeAdapter<T>) adapter;
+    }
+
+
+    private static abstract class EntityAdapter<T> extends TypeAdapter<T> {
+        private final TypeAdapter<T> mWriteDelegate;
+
+        EntityAdapter(@NonNull TypeAdapter<T> writeDelegate) {
+            mWriteDelegate = writeDelegate;
+        }
+
+        abstract T newInstance();
+
+        /**
+         * Reads the value of the given field into the entity.
+         * @return false if the field is unknown, in which case its value will be skipped
+         */
+        abstract boolean readField(JsonReader in, String name, T entity) throws IOException;
+
+        @Override
+        public final T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            T entity = newInstance();
+            in.beginObject();
+            while (in.hasNext()) {
+                if (! readField(in, in.nextName(), entity)) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return entity;
+        }
+
+        @Override
+        public final void write(JsonWriter out, T value) throws IOException {
+            mWriteDelegate.write(out, value);
+        }
+    }
+
+    private static final class PostAdapter extends EntityAdapter<Post> {
+        private final TypeAdapter<Tag> mTagAdapter;
+        private final TypeAdapter<Date> mDateAdapter;
+
+        PostAdapter(TypeAdapter<Post> writeDelegate, TypeAdapter<Tag> tagAdapter,
+                    TypeAdapter<Date> dateAdapter) {
+            super(writeDelegate);
+            mTagAdapter = tagAdapter;
+            mDateAdapter = dateAdapter;
+        }
+
+        @Override
+        Post newInstance() {
+            return new Post();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, Post post) throws IOException {
+            switch (name) {
+                case "uuid":                post.setUuid(readString(in)); return true;
+                case "id":                  if (! skipNull(in)) post.setId(in.nextInt()); return true;
+                case "title":               post.setTitle(readString(in)); return true;
+                case "slug":                post.setSlug(readString(in)); return true;
+                case "status":              post.setStatus(readString(in)); return true;
+                case "markdown":            post.setMarkdown(readString(in)); return true;
+                case "html":                post.setHtml(readString(in)); return true;
+                case "tags":                post.setTags(readRealmList(in, mTagAdapter)); return true;
+                case "image":               post.setImage(readString(in)); return true;
+                case "featured":            if (! skipNull(in)) post.setFeatured(readBoolean(in)); return true;
+                case "page":                if (! skipNull(in)) post.setPage(readBoolean(in)); return true;
+                case "language":            post.setLanguage(readString(in)); return true;
+                case "author":              if (! skipNull(in)) post.setAuthor(in.nextInt()); return true;
+                case "created_by":          if (! skipNull(in)) post.setCreatedBy(in.nextInt()); return true;
+                case "updated_by":          if (! skipNull(in)) post.setUpdatedBy(in.nextInt()); return true;
+                case "published_by":        if (! skipNull(in)) post.setPublishedBy(in.nextInt()); return true;
+                case "created_at":          post.setCreatedAt(mDateAdapter.read(in)); return true;
+                case "published_at":        post.setPublishedAt(mDateAdapter.read(in)); return true;
+                case "updated_at":          post.setUpdatedAt(mDateAdapter.read(in)); return true;
+                case "meta_title":          post.setMetaTitle(readString(in)); return true;
+                case "meta_description":    post.setMetaDescription(readString(in)); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class TagAdapter extends EntityAdapter<Tag> {
+        private final TypeAdapter<Date> mDateAdapter;
+
+        TagAdapter(TypeAdapter<Tag> writeDelegate, TypeAdapter<Date> dateAdapter) {
+            super(writeDelegate);
+            mDateAdapter = dateAdapter;
+        }
+
+        @Override
+        Tag newInstance() {
+            return new Tag();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, Tag tag) throws IOException {
+            switch (name) {
+                case "uuid":                tag.setUuid(readString(in)); return true;
+                case "name":                tag.setName(readString(in)); return true;
+                case "slug":                tag.setSlug(readString(in)); return true;
+                case "description":         tag.setDescription(readString(in)); return true;
+                case "image":               tag.setImage(readString(in)); return true;
+                case "hidden":              if (! skipNull(in)) tag.setHidden(readBoolean(in)); return true;
+                case "meta_title":          tag.setMetaTitle(readString(in)); return true;
+                case "meta_description":    tag.setMetaDescription(readString(in)); return true;
+                case "created_at":          tag.setCreatedAt(mDateAdapter.read(in)); return true;
+                case "updated_at":          tag.setUpdatedAt(mDateAdapter.read(in)); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class UserAdapter extends EntityAdapter<User> {
+        private final TypeAdapter<Role> mRoleAdapter;
+
+        UserAdapter(TypeAdapter<User> writeDelegate, TypeAdapter<Role> roleAdapter) {
+            super(writeDelegate);
+            mRoleAdapter = roleAdapter;
+        }
+
+        @Override
+        User newInstance() {
+            return new User();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, User user) throws IOException {
+            switch (name) {
+                case "id":                  if (! skipNull(in)) user.setId(in.nextInt()); return true;
+                case "uuid":                user.setUuid(readString(in)); return true;
+                case "name":                user.setName(readString(in)); return true;
+                case "slug":                user.setSlug(readString(in)); return true;
+                case "email":               user.setEmail(readString(in)); return true;
+                case "image":               user.setImage(readString(in)); return true;
+                case "bio":                 user.setBio(readString(in)); return true;
+                case "roles":               user.setRoles(readRealmList(in, mRoleAdapter)); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class RoleAdapter extends EntityAdapter<Role> {
+        RoleAdapter(TypeAdapter<Role> writeDelegate) {
+            super(writeDelegate);
+        }
+
+        @Override
+        Role newInstance() {
+            return new Role();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, Role role) throws IOException {
+            switch (name) {
+                case "id":                  if (! skipNull(in)) role.setId(in.nextInt()); return true;
+                case "uuid":                role.setUuid(readString(in)); return true;
+                case "name":                role.setName(readString(in)); return true;
+                case "description":         role.setDescription(readString(in)); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class SettingAdapter extends EntityAdapter<Setting> {
+        SettingAdapter(TypeAdapter<Setting> writeDelegate) {
+            super(writeDelegate);
+        }
+
+        @Override
+        Setting newInstance() {
+            return new Setting();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, Setting setting) throws IOException {
+            switch (name) {
+                case "id":                  if (! skipNull(in)) setting.setId(in.nextInt()); return true;
+                case "uuid":                setting.setUuid(readString(in)); return true;
+                case "key":                 setting.setKey(readString(in)); return true;
+                case "value":               setting.setValue(readString(in)); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class AuthTokenAdapter extends EntityAdapter<AuthToken> {
+        AuthTokenAdapter(TypeAdapter<AuthToken> writeDelegate) {
+            super(writeDelegate);
+        }
+
+        @Override
+        AuthToken newInstance() {
+            return new AuthToken();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, AuthToken token) throws IOException {
+            switch (name) {
+                case "token_type":          token.setTokenType(readString(in)); return true;
+                case "access_token":        token.setAccessToken(readString(in)); return true;
+                case "refresh_token":       token.setRefreshToken(readString(in)); return true;
+                case "expires_in":          if (! skipNull(in)) token.setExpiresIn(in.nextInt()); return true;
+                case "created_at":          if (! skipNull(in)) token.setCreatedAt(in.nextLong()); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class PostListAdapter extends EntityAdapter<PostList> {
+        private final TypeAdapter<Post> mPostAdapter;
+        private final TypeAdapter<ResponseMeta> mMetaAdapter;
+
+        PostListAdapter(TypeAdapter<PostList> writeDelegate, TypeAdapter<Post> postAdapter,
+                        TypeAdapter<ResponseMeta> metaAdapter) {
+            super(writeDelegate);
+            mPostAdapter = postAdapter;
+            mMetaAdapter = metaAdapter;
+        }
+
+        @Override
+        PostList newInstance() {
+            return new PostList();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, PostList postList) throws IOException {
+            switch (name) {
+                case "posts":               postList.posts = readList(in, mPostAdapter); return true;
+                // once per response, not worth a hand-written adapter
+                case "meta":                postList.meta = mMetaAdapter.read(in); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class UserListAdapter extends EntityAdapter<UserList> {
+        private final TypeAdapter<User> mUserAdapter;
+
+        UserListAdapter(TypeAdapter<UserList> writeDelegate, TypeAdapter<User> userAdapter) {
+            super(writeDelegate);
+            mUserAdapter = userAdapter;
+        }
+
+        @Override
+        UserList newInstance() {
+            return new UserList();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, UserList userList) throws IOException {
+            switch (name) {
+                case "users":               userList.users = readList(in, mUserAdapter); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+    private static final class SettingsListAdapter extends EntityAdapter<SettingsList> {
+        private final TypeAdapter<Setting> mSettingAdapter;
+
+        SettingsListAdapter(TypeAdapter<SettingsList> writeDelegate,
+                            TypeAdapter<Setting> settingAdapter) {
+            super(writeDelegate);
+            mSettingAdapter = settingAdapter;
+        }
+
+        @Override
+        SettingsList newInstance() {
+            return new SettingsList();
+        }
+
+        @Override
+        boolean readField(JsonReader in, String name, SettingsList settingsList) throws IOException {
+            switch (name) {
+                case "settings":            settingsList.settings = readList(in, mSettingAdapter); return true;
+                default:                    return false;
+            }
+        }
+    }
+
+
+    // helpers; these follow the behaviour of Gson's built-in adapters for the same types
+    /** Consumes the next value if it is null. */
+    private static boolean skipNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    private static <T> List<T> readList(JsonReader in, TypeAdapter<T> elementAdapter)
+            throws IOException {
+        if (skipNull(in)) {
+            return null;
+        }
+        List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    private static <T extends RealmModel> RealmList<T> readRealmList(
+            JsonReader in, TypeAdapter<T> elementAdapter) throws IOException {
+        if (skipNull(in)) {
+            return null;
+        }
+        RealmList<T> list = new RealmList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+}
@@ -0,0 +1,69 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import okhttp3.Cache;
+
+/**
+ * Snapshot of the usage counters of an OkHttp {@link Cache}, since it was created.
+ */
+public final class HttpCacheStats {
+
+    @NonNull public final String name;
+    // number of HTTP requests that went through the cache
+    public final int requestCount;
+    // number of those that needed a network call (misses, and conditional requests like ETags)
+    public final int networkCount;
+    // number of those that were served by the cache (including conditional requests that got a
+    // 304 Not Modified)
+    public final int hitCount;
+    public final long size;         // in bytes, or -1 if unknown
+    public final long maxSize;      // in bytes
+
+    HttpCacheStats(@NonNull String name, int requestCount, int networkCount, int hitCount,
+                   long size, long maxSize) {
+        this.name = name;
+        this.requestCount = requestCount;
+        this.networkCount = networkCount;
+        this.hitCount = hitCount;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return stats for the given cache, or null if there is no cache
+     */
+    @Nullable
+    public static HttpCacheStats from(@NonNull String name, @Nullable Cache cache) {
+        if (cache == null) {
+            return null;
+        }
+        long size;
+        try {
+            size = cache.size();
+        } catch (IOException e) {
+            size = -1;
+        }
+        return new HttpCacheStats(name, cache.requestCount(), cache.networkCount(),
+                cache.hitCount(), size, cache.maxSize());
+    }
+
+    /**
+     * @return fraction of requests served by the cache, between 0 and 1
+     */
+    public float getHitRate() {
+        return (requestCount == 0) ? 0 : (float) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s cache: %d requests, %d network, %d hits (%.1f%%), %d / %d KB",
+                name, requestCount, networkCount, hitCount, getHitRate() * 100, size / 1024,
+                maxSize / 1024);
+    }
+
+}
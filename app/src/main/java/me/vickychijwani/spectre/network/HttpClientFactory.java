@@ -1,5 +1,6 @@
 package me.vickychijwani.spectre.network;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.File;
@@ -8,6 +9,21 @@ import okhttp3.OkHttpClient;
 
 public interface HttpClientFactory {
 
+    /**
+     * @param cacheDir - directory for the cache of API responses, disabled if null
+     */
     OkHttpClient create(@Nullable File cacheDir);
 
+    /**
+     * @param apiClient    - client returned by {@link #create(File)}, whose connections, threads
+     *                     and settings are shared with the new client
+     * @param cacheDir     - directory for the image cache, disabled if null
+     * @param pinnedImages - images to serve from the given store instead of the cache or the
+     *                     network, if not null
+     * @return a client for downloading images, which are cached separately so that they don't
+     * evict API responses
+     */
+    OkHttpClient createImageClient(@NonNull OkHttpClient apiClient, @Nullable File cacheDir,
+                                   @Nullable PinnedImageStore pinnedImages);
+
 }
@@ -0,0 +1,108 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Fetches images ahead of time, with a limit on how many are in flight at once, so they can be
+ * shown later without a connection.
+ *
+ * - each call to {@link #prefetch} replaces whatever was still waiting from the previous one
+ * - pinned images are fetched first, and the {@link Fetcher} is told to store them where they
+ *   can't be evicted (see {@link PinnedImageStore}); the rest only go into the image cache
+ *
+ * All methods must be called on the same thread (the main thread).
+ */
+final class ImagePrefetcher {
+
+    interface Fetcher {
+        /**
+         * @param pinned whether the image must be kept until it's unpinned, instead of just cached
+         * @param onDone must be called exactly once, when the fetch has finished (successfully or
+         *               not)
+         */
+        void fetch(@NonNull String url, boolean pinned, @NonNull Runnable onDone);
+    }
+
+    private final int mMaxInFlight;
+    private final Fetcher mFetcher;
+    private final ArrayDeque<String> mPendingUrls = new ArrayDeque<>();
+    private final Set<String> mInFlightUrls = new HashSet<>();
+    private final Set<String> mPinnedUrls = new HashSet<>();
+
+    ImagePrefetcher(int maxInFlight, @NonNull Fetcher fetcher) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1, got " + maxInFlight);
+        }
+        mMaxInFlight = maxInFlight;
+        mFetcher = fetcher;
+    }
+
+    /**
+     * @param urls       - images to fetch, in order
+     * @param pinnedUrls - images to keep until they're unpinned, fetched before all others
+     */
+    void prefetch(@NonNull Collection<String> urls, @NonNull Collection<String> pinnedUrls) {
+        Set<String> orderedUrls = new LinkedHashSet<>(pinnedUrls);
+        orderedUrls.addAll(urls);
+        mPinnedUrls.clear();
+        mPinnedUrls.addAll(pinnedUrls);
+        mPendingUrls.clear();
+        for (String url : orderedUrls) {
+            // already being fetched; if it has just been pinned, the next prefetch will store it
+            if (! mInFlightUrls.contains(url)) {
+                mPendingUrls.addLast(url);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Drops all images waiting to be fetched. Fetches already in flight are left to finish.
+     */
+    void cancel() {
+        mPendingUrls.clear();
+        mPinnedUrls.clear();
+    }
+
+    boolean isIdle() {
+        return mPendingUrls.isEmpty() && mInFlightUrls.isEmpty();
+    }
+
+    int getInFlightCount() {
+        return mInFlightUrls.size();
+    }
+
+    private void dispatch() {
+        while (mInFlightUrls.size() < mMaxInFlight && ! mPendingUrls.isEmpty()) {
+            String url = mPendingUrls.removeFirst();
+            mInFlightUrls.add(url);
+            mFetcher.fetch(url, mPinnedUrls.contains(url), new OnDone(url));
+        }
+    }
+
+    private final class OnDone implements Runnable {
+        private final String mUrl;
+        private boolean mbCalled = false;
+
+        OnDone(String url) {
+            mUrl = url;
+        }
+
+        @Override
+        public void run() {
+            if (mbCalled) {
+                throw new IllegalStateException("onDone called more than once for " + mUrl);
+            }
+            mbCalled = true;
+            mInFlightUrls.remove(mUrl);
+            dispatch();
+        }
+    }
+
+}
@@ -2,6 +2,9 @@ package me.vickychijwani.spectre.network;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
@@ -13,19 +16,26 @@ import com.google.gson.JsonObject;
 import com.squareup.otto.Bus;
 import com.squareup.otto.Subscribe;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.net.HttpURLConnection;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
-import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
 import io.realm.Case;
 import io.realm.Realm;
 import io.realm.RealmModel;
@@ -48,12 +58,14 @@ import me.vickychijwani.spectre.event.DataRefreshedEvent;
 import me.vickychijwani.spectre.event.DeletePostEvent;
 import me.vickychijwani.spectre.event.FileUploadErrorEvent;
 import me.vickychijwani.spectre.event.FileUploadEvent;
+import me.vickychijwani.spectre.event.FileUploadProgressEvent;
 import me.vickychijwani.spectre.event.FileUploadedEvent;
 import me.vickychijwani.spectre.event.ForceCancelRefreshEvent;
 import me.vickychijwani.spectre.event.GhostVersionLoadedEvent;
 import me.vickychijwani.spectre.event.LoadBlogSettingsEvent;
 import me.vickychijwani.spectre.event.LoadConfigurationEvent;
 import me.vickychijwani.spectre.event.LoadGhostVersionEvent;
+import me.vickychijwani.spectre.event.LoadPostEvent;
 import me.vickychijwani.spectre.event.LoadPostsEvent;
 import me.vickychijwani.spectre.event.LoadTagsEvent;
 import me.vickychijwani.spectre.event.LoadUserEvent;
@@ -66,6 +78,8 @@ import me.vickychijwani.spectre.event.PasswordChangedEvent;
 import me.vickychijwani.spectre.event.PostConflictFoundEvent;
 import me.vickychijwani.spectre.event.PostCreatedEvent;
 import me.vickychijwani.spectre.event.PostDeletedEvent;
+import me.vickychijwani.spectre.event.PostLoadErrorEvent;
+import me.vickychijwani.spectre.event.PostLoadedEvent;
 import me.vickychijwani.spectre.event.PostReplacedEvent;
 import me.vickychijwani.spectre.event.PostSavedEvent;
 import me.vickychijwani.spectre.event.PostSyncedEvent;
@@ -74,12 +88,15 @@ import me.vickychijwani.spectre.event.RefreshDataEvent;
 import me.vickychijwani.spectre.event.SavePostEvent;
 import me.vickychijwani.spectre.event.SyncPostsEvent;
 import me.vickychijwani.spectre.event.TagsLoadedEvent;
+import me.vickychijwani.spectre.event.UploadPendingFilesEvent;
 import me.vickychijwani.spectre.event.UserLoadedEvent;
 import me.vickychijwani.spectre.model.entity.AuthToken;
 import me.vickychijwani.spectre.model.entity.ConfigurationParam;
 import me.vickychijwani.spectre.model.entity.ETag;
 import me.vickychijwani.spectre.model.entity.PendingAction;
+import me.vickychijwani.spectre.model.entity.PendingUpload;
 import me.vickychijwani.spectre.model.entity.Post;
+import me.vickychijwani.spectre.model.entity.PostSummary;
 import me.vickychijwani.spectre.model.entity.Setting;
 import me.vickychijwani.spectre.model.entity.Tag;
 import me.vickychijwani.spectre.model.entity.User;
@@ -87,6 +104,7 @@ import me.vickychijwani.spectre.network.entity.ApiErrorList;
 import me.vickychijwani.spectre.network.entity.AuthReqBody;
 import me.vickychijwani.spectre.network.entity.ConfigurationList;
 import me.vickychijwani.spectre.network.entity.PostList;
+import me.vickychijwani.spectre.network.entity.PostManifest;
 import me.vickychijwani.spectre.network.entity.PostStubList;
 import me.vickychijwani.spectre.network.entity.RefreshReqBody;
 import me.vickychijwani.spectre.network.entity.RevokeReqBody;
@@ -98,14 +116,19 @@ import me.vickychijwani.spectre.util.functions.Action0;
 import me.vickychijwani.spectre.util.functions.Action1;
 import me.vickychijwani.spectre.util.functions.Action2;
 import me.vickychijwani.spectre.util.DateTimeUtils;
+import me.vickychijwani.spectre.util.ImageUtils;
 import me.vickychijwani.spectre.util.NetworkUtils;
 import me.vickychijwani.spectre.util.PostUtils;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -115,38 +138,87 @@ public class NetworkService {
 
     private static final String TAG = "NetworkService";
 
-    // number of posts to fetch
-    private static final int POSTS_FETCH_LIMIT = 30;
+    // number of posts to fetch per page when syncing posts
+    private static final int POSTS_PAGE_SIZE = 50;
+    // max number of post uploads (create / update / delete) in flight at once when syncing posts
+    private static final int MAX_CONCURRENT_POST_UPLOADS = 3;
+    // max number of images from the upload outbox uploaded at once
+    private static final int MAX_CONCURRENT_FILE_UPLOADS = 3;
+    // max number of images fetched at once to warm the image cache after a sync
+    private static final int MAX_CONCURRENT_IMAGE_PREFETCHES = 2;
+    private static final long PREFETCH_READ_BUFFER_SIZE = 8192;
+    // how long a client secret is reused before it is fetched again from the admin page
+    private static final long CLIENT_SECRET_TTL = TimeUnit.DAYS.toMillis(1);
+    // how long the server URL of an uploaded image is remembered, to replace its placeholder in
+    // posts saved after the upload finished (e.g., by an editor that was in the background)
+    private static final long UPLOADED_FILE_TTL = TimeUnit.DAYS.toMillis(7);
+    // local copies of images that never made it into the upload outbox (e.g., because the app was
+    // killed right after copying them) are deleted after this long
+    private static final long ORPHANED_OUTBOX_FILE_TTL = TimeUnit.DAYS.toMillis(1);
 
     private Realm mRealm = null;
+    // all writes go through this, so they don't block the main thread
+    private RealmWriteQueue mWriteQueue = null;
     private GhostApiService mApi = null;
     private AuthToken mAuthToken = null;
     private String mBlogUrl = null;
     private OkHttpClient mOkHttpClient = null;
+    private OkHttpClient mImageHttpClient = null;
+    private PinnedImageStore mPinnedImageStore = null;
 
     private boolean mbAuthRequestOnGoing = false;
+    // refreshes the access token in the background a while before it expires
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mAccessTokenRefreshRunnable = this::refreshAccessTokenInBackground;
     private boolean mbSyncOnGoing = false;
+    // sync requested while another one was in progress; requests are merged into this one
+    private SyncPostsEvent mPendingSyncPostsEvent = null;
+    // incremented on logout, so responses and writes of a posts sync started before that are dropped
+    private int mPostsSyncGeneration = 0;
     private ApiFailure mRefreshError = null;
     private final ArrayDeque<ApiCallEvent> mApiEventQueue = new ArrayDeque<>();
     private final ArrayDeque<ApiCallEvent> mRefreshEventsQueue = new ArrayDeque<>();
+    private final PostUploadScheduler mPostUploadScheduler =
+            new PostUploadScheduler(MAX_CONCURRENT_POST_UPLOADS);
+    // uuids of posts with changes made explicitly by the user, which are uploaded first
+    private final Set<String> mUserSavedPostUuids = new HashSet<>();
+    // ids of images from the upload outbox that are being uploaded right now
+    private final Set<String> mFileUploadsInFlight = new HashSet<>();
+    private final Runnable mUploadPendingFilesRunnable =
+            () -> getBus().post(new UploadPendingFilesEvent());
+    // fetches cover images and the avatar ahead of time, so they can be shown offline
+    private final ImagePrefetcher mImagePrefetcher =
+            new ImagePrefetcher(MAX_CONCURRENT_IMAGE_PREFETCHES, this::prefetchImage);
     private Retrofit mRetrofit;
 
-    public void start(Context context, OkHttpClient okHttpClient) {
+    public void start(Context context, OkHttpClient okHttpClient, OkHttpClient imageHttpClient,
+                      PinnedImageStore pinnedImageStore) {
         Crashlytics.log(Log.DEBUG, TAG, "Initializing NetworkService...");
         getBus().register(this);
         mOkHttpClient = okHttpClient;
+        mImageHttpClient = imageHttpClient;
+        mPinnedImageStore = pinnedImageStore;
         mRealm = Realm.getDefaultInstance();
+        mWriteQueue = new RealmWriteQueue(mRealm);
         if (AppState.getInstance(context).getBoolean(AppState.Key.LOGGED_IN)) {
-            mAuthToken = mRealm.where(AuthToken.class).findFirst();
+            AuthToken authToken = mRealm.where(AuthToken.class).findFirst();
+            mAuthToken = (authToken != null) ? new AuthToken(authToken) : null;
             mBlogUrl = UserPrefs.getInstance(context).getString(UserPrefs.Key.BLOG_URL);
             mApi = buildApiService(mBlogUrl);
+            scheduleAccessTokenRefresh();
+            // resume uploading images left in the outbox the last time the app ran
+            mHandler.post(mUploadPendingFilesRunnable);
         }
+        mWriteQueue.enqueue(realm -> deleteOrphanedOutboxFiles(realm, ORPHANED_OUTBOX_FILE_TTL));
     }
 
     // I don't know how to call this from the Application class!
     @SuppressWarnings("unused")
     public void stop() {
         getBus().unregister(this);
+        mHandler.removeCallbacks(mAccessTokenRefreshRunnable);
+        mHandler.removeCallbacks(mUploadPendingFilesRunnable);
+        mImagePrefetcher.cancel();
         mRealm.close();
     }
 
@@ -156,12 +228,13 @@ public class NetworkService {
         mbAuthRequestOnGoing = true;
         mBlogUrl = event.blogUrl;
         mApi = buildApiService(mBlogUrl);
-        GhostApiUtils.doWithClientSecret(mApi, mBlogUrl, clientSecret -> {
-            doLogin(event, clientSecret);
+        doWithClientSecret(mApi, mBlogUrl, (clientSecret, fromCache) -> {
+            doLogin(event, clientSecret, fromCache);
         });
     }
 
-    private void doLogin(@NonNull LoginStartEvent event, @Nullable String clientSecret) {
+    private void doLogin(@NonNull LoginStartEvent event, @Nullable String clientSecret,
+                         boolean clientSecretFromCache) {
         AuthReqBody credentials = new AuthReqBody(event.username, event.password, clientSecret);
         mApi.getAuthToken(credentials).enqueue(new Callback<AuthToken>() {
             @Override
@@ -173,6 +246,15 @@ public class NetworkService {
                     getBus().post(new LoginDoneEvent(event.blogUrl, event.username, event.password,
                             event.initiatedByUser));
                 } else {
+                    if (clientSecretFromCache && NetworkUtils.isUnauthorized(response)) {
+                        // the cached client secret may be stale, retry once with a fresh one
+                        clearCachedClientSecret();
+                        mbAuthRequestOnGoing = true;
+                        doWithClientSecret(mApi, mBlogUrl, (clientSecret, fromCache) -> {
+                            doLogin(event, clientSecret, fromCache);
+                        });
+                        return;
+                    }
                     // if this request was not initiated by the user and the response is 401 Unauthorized,
                     // it means the password changed - ask for the password again
                     if (!event.initiatedByUser && NetworkUtils.isUnauthorized(response)) {
@@ -329,15 +411,16 @@ public class NetworkService {
             public void onResponse(Call<UserList> call, Response<UserList> response) {
                 if (response.isSuccessful()) {
                     UserList userList = response.body();
-                    storeEtag(response.headers(), ETag.TYPE_CURRENT_USER);
-                    createOrUpdateModel(userList.users);
-                    getBus().post(new UserLoadedEvent(userList.users.get(0)));
+                    mWriteQueue.enqueue(realm -> saveServerModels(realm, response.headers(),
+                            ETag.TYPE_CURRENT_USER, userList.users), () -> {
+                        getBus().post(new UserLoadedEvent(userList.users.get(0)));
 
-                    // download all posts again to enforce role-based permissions for this user
-                    removeEtag(ETag.TYPE_ALL_POSTS);
-                    getBus().post(new SyncPostsEvent(false));
+                        // download all posts again to enforce role-based permissions for this user
+                        resetPostsSyncState();
+                        getBus().post(new SyncPostsEvent(false));
 
-                    refreshSucceeded(event);
+                        refreshSucceeded(event);
+                    });
                 } else {
                     // fallback to cached data
                     RealmResults<User> users = mRealm.where(User.class).findAll();
@@ -386,11 +469,12 @@ public class NetworkService {
             public void onResponse(Call<SettingsList> call, Response<SettingsList> response) {
                 if (response.isSuccessful()) {
                     SettingsList settingsList = response.body();
-                    storeEtag(response.headers(), ETag.TYPE_BLOG_SETTINGS);
-                    createOrUpdateModel(settingsList.settings);
-                    savePermalinkFormat(settingsList.settings);
-                    getBus().post(new BlogSettingsLoadedEvent(settingsList.settings));
-                    refreshSucceeded(event);
+                    mWriteQueue.enqueue(realm -> saveServerModels(realm, response.headers(),
+                            ETag.TYPE_BLOG_SETTINGS, settingsList.settings), () -> {
+                        savePermalinkFormat(settingsList.settings);
+                        getBus().post(new BlogSettingsLoadedEvent(settingsList.settings));
+                        refreshSucceeded(event);
+                    });
                 } else {
                     // fallback to cached data
                     RealmResults<Setting> settings = mRealm.where(Setting.class).findAll();
@@ -461,9 +545,9 @@ public class NetworkService {
             public void onResponse(Call<ConfigurationList> call, Response<ConfigurationList> response) {
                 if (response.isSuccessful()) {
                     ConfigurationList configurationList = response.body();
-                    storeEtag(response.headers(), ETag.TYPE_CONFIGURATION);
-                    createOrUpdateModel(configurationList.configuration);
-                    successCallback.call(configurationList.configuration);
+                    mWriteQueue.enqueue(realm -> saveServerModels(realm, response.headers(),
+                            ETag.TYPE_CONFIGURATION, configurationList.configuration),
+                            () -> successCallback.call(configurationList.configuration));
                 } else {
                     ApiFailure<ConfigurationList> apiFailure = new ApiFailure<>(response);
                     if (NetworkUtils.isUnauthorized(response)) {
@@ -487,84 +571,133 @@ public class NetworkService {
     @Subscribe
     public void onLoadPostsEvent(final LoadPostsEvent event) {
         if (event.loadCachedData || ! event.forceNetworkCall) {
-            List<Post> posts = getPostsSorted();
+            List<PostSummary> posts = getPostsSorted();
             // if there are no posts, there could be 2 cases:
             // 1. there are actually no posts
             // 2. we just haven't fetched any posts from the server yet (Realm returns an empty list in this case too)
             if (posts.size() > 0) {
-                getBus().post(new PostsLoadedEvent(posts, POSTS_FETCH_LIMIT));
+                getBus().post(new PostsLoadedEvent(posts));
                 refreshSucceeded(event);
                 return;
             }
         }
 
         if (! validateAccessToken(event)) return;
-        mApi.getPosts(mAuthToken.getAuthHeader(), loadEtag(ETag.TYPE_ALL_POSTS), POSTS_FETCH_LIMIT).enqueue(new Callback<PostList>() {
+
+        // only fetch posts updated since the last completed sync, if any
+        long watermark = getAppState().getLong(AppState.Key.POSTS_SYNC_WATERMARK);
+        // resume an interrupted sync from the page it stopped at, instead of starting over
+        // NOTE: the watermark is only advanced once a sync completes, so a resumed sync uses the
+        // same filter as the one it is resuming
+        int startPage = getAppState().getInteger(AppState.Key.POSTS_SYNC_NEXT_PAGE);
+        PostsSyncState syncState = new PostsSyncState(mPostsSyncGeneration,
+                watermark > 0 ? new Date(watermark) : null);
+        loadPostsPage(event, startPage, syncState);
+    }
+
+    private void loadPostsPage(final LoadPostsEvent event, final int page,
+                               @NonNull final PostsSyncState syncState) {
+        String filter = null;
+        // oldest first, so that posts created or edited while we're paging move *ahead* of the
+        // cursor instead of behind it
+        String order = "id asc";
+        if (syncState.updatedSince != null) {
+            filter = GhostApiUtils.makeUpdatedSinceFilter(syncState.updatedSince);
+            order = "updated_at asc";
+        }
+        Crashlytics.log(Log.DEBUG, TAG, "[loadPostsPage] fetching page " + page
+                + (filter != null ? " with filter " + filter : ""));
+        mApi.getPosts(mAuthToken.getAuthHeader(), filter, order, POSTS_PAGE_SIZE, page).enqueue(new Callback<PostList>() {
             @Override
             public void onResponse(Call<PostList> call, Response<PostList> response) {
+                if (isStale(syncState)) {
+                    Crashlytics.log(Log.DEBUG, TAG, "[loadPostsPage] dropping page " + page
+                            + " of a sync started before logout");
+                    return;
+                }
                 if (response.isSuccessful()) {
                     PostList postList = response.body();
-                    storeEtag(response.headers(), ETag.TYPE_ALL_POSTS);
+                    Integer nextPage = postList.getNextPage();
+                    syncState.onPostsReceived(postList.posts);
 
                     // if this user is only an author, filter out posts they're not authorized to access
-                    // FIXME if the last POSTS_FETCH_LIMIT number of posts are not owned by this author,
-                    // FIXME we'll end up with no posts displayed in the UI!
-                    RealmResults<User> users = mRealm.where(User.class).findAll();
-                    if (users.size() > 0) {
-                        User user = users.first();
-                        if (user.hasOnlyAuthorRole()) {
-                            int currentUser = user.getId();
-                            // reverse iteration because in forward iteration, indices change on deleting
-                            for (int i = postList.posts.size() - 1; i >= 0; --i) {
-                                Post post = postList.posts.get(i);
-                                if (post.getAuthor() != currentUser) {
-                                    postList.posts.remove(i);
-                                }
-                            }
-                        }
-                    }
-
-                    // delete posts that are no longer present on the server
-                    // this assumes that postList.posts is a list of ALL posts on the server
-                    // FIXME time complexity is quadratic in the number of posts!
-                    Iterable<Post> deletedPosts = Observable.fromIterable(mRealm.where(Post.class).findAll())
-                            .filter(cached -> ! postList.contains(cached.getUuid()))
-                            .blockingIterable();
-                    deleteModels(deletedPosts);
-
-                    // skip edited posts because they've not yet been uploaded
-                    RealmResults<Post> localOnlyEdits = mRealm.where(Post.class)
-                            .in("pendingActions.type", new String[] {
-                                    PendingAction.EDIT_LOCAL,
-                                    PendingAction.EDIT
-                            })
-                            .findAll();
-                    for (int i = postList.posts.size() - 1; i >= 0; --i) {
-                        for (int j = 0; j < localOnlyEdits.size(); ++j) {
-                            if (postList.posts.get(i).getUuid().equals(localOnlyEdits.get(j).getUuid())) {
+                    Integer authorOnlyUserId = getAuthorOnlyUserId();
+                    if (authorOnlyUserId != null) {
+                        // reverse iteration because in forward iteration, indices change on deleting
+                        for (int i = postList.posts.size() - 1; i >= 0; --i) {
+                            Post post = postList.posts.get(i);
+                            if (post.getAuthor() != authorOnlyUserId) {
                                 postList.posts.remove(i);
                             }
                         }
                     }
 
                     // make sure drafts have a publishedAt of FAR_FUTURE so they're sorted to the top
-                    Observable.fromIterable(postList.posts)
-                            .filter(post -> post.getPublishedAt() == null)
-                            .forEach(post -> post.setPublishedAt(DateTimeUtils.FAR_FUTURE));
+                    for (Post post : postList.posts) {
+                        if (post.getPublishedAt() == null) {
+                            post.setPublishedAt(DateTimeUtils.FAR_FUTURE);
+                        }
+                        post.updateSortKey();
+                    }
 
-                    // now create / update received posts
-                    // TODO use Realm#insertOrUpdate() for faster insertion here: https://realm.io/news/realm-java-1.1.0/
-                    createOrUpdateModel(postList.posts);
-                    getBus().post(new PostsLoadedEvent(getPostsSorted(), POSTS_FETCH_LIMIT));
+                    final String[] pagePostUuids = new String[postList.posts.size()];
+                    for (int i = 0; i < pagePostUuids.length; ++i) {
+                        pagePostUuids[i] = postList.posts.get(i).getUuid();
+                    }
+                    mWriteQueue.enqueue(realm -> {
+                        // only look at the local copies of the posts on this page, so the cost of
+                        // each page's transaction doesn't grow with the size of the blog
+                        List<Post> localPosts = (pagePostUuids.length == 0)
+                                ? Collections.emptyList()
+                                : realm.where(Post.class).in("uuid", pagePostUuids).findAll();
+                        // skip edited posts because they've not yet been uploaded
+                        PostReconciler.Result result = PostReconciler.reconcile(postList.posts,
+                                localPosts);
+                        Crashlytics.log(Log.DEBUG, TAG, "[loadPostsPage] page " + page
+                                + ": created = " + result.created.size()
+                                + ", updated = " + result.updated.size()
+                                + ", skipped = " + result.skipped.size());
+                        // the list only downloads post summaries, so keep the content of cached
+                        // posts that haven't changed since; changed posts are re-downloaded in
+                        // full when they're opened
+                        for (Post serverPost : result.updated) {
+                            Post localPost = realm.where(Post.class)
+                                    .equalTo("uuid", serverPost.getUuid()).findFirst();
+                            if (localPost.isContentLoaded() && serverPost.getUpdatedAt() != null
+                                    && serverPost.getUpdatedAt().equals(localPost.getUpdatedAt())) {
+                                serverPost.setMarkdown(localPost.getMarkdown());
+                                serverPost.setHtml(localPost.getHtml());
+                                serverPost.setContentLoaded(true);
+                            }
+                        }
+                        // now create / update received posts
+                        realm.insertOrUpdate(result.getPostsToSave());
+                    }, () -> {
+                        if (isStale(syncState)) {
+                            return;     // logged out while this page was being written
+                        }
+                        // writes are committed in order, so all previous pages are committed too
+                        if (nextPage != null) {
+                            // persist the cursor only after the page is committed, so an
+                            // interruption after this point resumes from the next page
+                            getAppState().setInteger(AppState.Key.POSTS_SYNC_NEXT_PAGE, nextPage);
+                            // show what we have so far
+                            getBus().post(new PostsLoadedEvent(getPostsSorted()));
+                        } else {
+                            onAllPostsPagesSynced(event, syncState);
+                        }
+                    });
 
-                    refreshSucceeded(event);
+                    if (nextPage != null) {
+                        // fetch the next page while this one is being written
+                        loadPostsPage(event, nextPage, syncState);
+                    }
                 } else {
                     // fallback to cached data
-                    getBus().post(new PostsLoadedEvent(getPostsSorted(), POSTS_FETCH_LIMIT));
-                    if (NetworkUtils.isNotModified(response)) {
-                        refreshSucceeded(event);
-                    } else if (NetworkUtils.isUnauthorized(response)) {
-                        // defer the event and try to re-authorize
+                    getBus().post(new PostsLoadedEvent(getPostsSorted()));
+                    if (NetworkUtils.isUnauthorized(response)) {
+                        // defer the event and try to re-authorize; the sync cursor is persisted,
+                        // so the deferred event will resume from this page
                         refreshAccessToken(event);
                     } else {
                         ApiFailure<PostList> apiFailure = new ApiFailure<>(response);
@@ -576,6 +709,9 @@ public class NetworkService {
 
             @Override
             public void onFailure(Call<PostList> call, Throwable error) {
+                if (isStale(syncState)) {
+                    return;
+                }
                 // error in transport layer, or lower
                 ApiFailure<PostList> apiFailure = new ApiFailure<>(error);
                 getBus().post(new ApiErrorEvent(apiFailure));
@@ -584,28 +720,173 @@ public class NetworkService {
         });
     }
 
+    private void onAllPostsPagesSynced(final LoadPostsEvent event,
+                                       @NonNull final PostsSyncState syncState) {
+        onPostsSyncCompleted(syncState);
+        // deletions are detected using the full list of post ids, fetched in a single request,
+        // because deletions on the server while we're paging shift later posts to earlier pages,
+        // so even a full sync may not see every post
+        reconcileDeletedPosts(event, syncState);
+        prefetchImages();
+    }
+
+    private void reconcileDeletedPosts(final LoadPostsEvent event,
+                                       @NonNull final PostsSyncState syncState) {
+        Crashlytics.log(Log.DEBUG, TAG, "[reconcileDeletedPosts] fetching post manifest");
+        mApi.getPostManifest(mAuthToken.getAuthHeader(), null).enqueue(new Callback<PostManifest>() {
+            @Override
+            public void onResponse(Call<PostManifest> call, Response<PostManifest> response) {
+                if (isStale(syncState)) {
+                    return;
+                }
+                if (response.isSuccessful()) {
+                    List<PostManifest.Entry> entries = response.body().posts;
+                    Integer authorOnlyUserId = getAuthorOnlyUserId();
+                    Set<String> serverPostUuids = new HashSet<>(entries.size());
+                    for (PostManifest.Entry entry : entries) {
+                        if (authorOnlyUserId == null || entry.author == authorOnlyUserId) {
+                            serverPostUuids.add(entry.uuid);
+                        }
+                    }
+                    // earliest updatedAt of posts the sync missed, for the same reason as above
+                    final long[] earliestMissedUpdatedAt = { Long.MAX_VALUE };
+                    mWriteQueue.enqueue(realm -> {
+                        deletePostsNotOnServer(realm, serverPostUuids);
+                        earliestMissedUpdatedAt[0] = findEarliestMissedUpdatedAt(realm, entries,
+                                serverPostUuids);
+                    }, () -> {
+                        if (isStale(syncState)) {
+                            return;
+                        }
+                        if (earliestMissedUpdatedAt[0] != Long.MAX_VALUE) {
+                            // move the watermark back so the next delta sync picks them up
+                            Crashlytics.log(Log.WARN, TAG, "[reconcileDeletedPosts] some posts "
+                                    + "were missed, moving the sync watermark back");
+                            AppState appState = getAppState();
+                            long watermark = appState.getLong(AppState.Key.POSTS_SYNC_WATERMARK);
+                            appState.setLong(AppState.Key.POSTS_SYNC_WATERMARK,
+                                    Math.min(watermark, earliestMissedUpdatedAt[0] - 1));
+                        }
+                        getBus().post(new PostsLoadedEvent(getPostsSorted()));
+                        refreshSucceeded(event);
+                    });
+                } else {
+                    // not fatal, the posts themselves are synced; deletions will be picked up on
+                    // the next sync
+                    Crashlytics.log(Log.WARN, TAG, "[reconcileDeletedPosts] failed with "
+                            + "response code = " + response.code());
+                    getBus().post(new PostsLoadedEvent(getPostsSorted()));
+                    refreshSucceeded(event);
+                }
+            }
+
+            @Override
+            public void onFailure(Call<PostManifest> call, Throwable error) {
+                if (isStale(syncState)) {
+                    return;
+                }
+                // error in transport layer, or lower; not fatal, same as above
+                Crashlytics.log(Log.WARN, TAG, "[reconcileDeletedPosts] failed: "
+                        + Log.getStackTraceString(error));
+                getBus().post(new PostsLoadedEvent(getPostsSorted()));
+                refreshSucceeded(event);
+            }
+        });
+    }
+
+    @Subscribe
+    public void onLoadPostEvent(final LoadPostEvent event) {
+        Post cachedPost = mRealm.where(Post.class).equalTo("uuid", event.uuid).findFirst();
+        if (cachedPost == null) {
+            Crashlytics.log(Log.WARN, TAG, "[onLoadPostEvent] post not found, uuid = " + event.uuid);
+            getBus().post(new PostLoadErrorEvent(event.uuid, new ApiFailure<>(
+                    new IllegalArgumentException("No post with uuid = " + event.uuid))));
+            return;
+        }
+        // posts created or edited locally always have their content
+        if (cachedPost.isContentLoaded()) {
+            getBus().post(new PostLoadedEvent(new Post(cachedPost)));
+            return;
+        }
+        if (event.loadCachedData) {
+            // auth failed, and we don't have the content offline
+            getBus().post(new PostLoadErrorEvent(event.uuid, new ApiFailure<>(
+                    new IllegalStateException("Post content not available offline"))));
+            return;
+        }
+
+        if (! validateAccessToken(event)) return;
+        final int postId = cachedPost.getId();
+        Crashlytics.log(Log.DEBUG, TAG, "[onLoadPostEvent] downloading content of post id = " + postId);
+        mApi.getPost(mAuthToken.getAuthHeader(), postId).enqueue(new Callback<PostList>() {
+            @Override
+            public void onResponse(Call<PostList> call, Response<PostList> response) {
+                if (response.isSuccessful() && ! response.body().posts.isEmpty()) {
+                    Post serverPost = response.body().posts.get(0);
+                    if (serverPost.getPublishedAt() == null) {
+                        serverPost.setPublishedAt(DateTimeUtils.FAR_FUTURE);
+                    }
+                    final Post[] loadedPost = {null};
+                    mWriteQueue.enqueue(realm -> {
+                        Post localPost = realm.where(Post.class)
+                                .equalTo("uuid", event.uuid).findFirst();
+                        if (localPost == null) {
+                            // deleted while we were downloading it
+                            return;
+                        }
+                        if (localPost.isContentLoaded()) {
+                            // edited locally while we were downloading it, don't overwrite that
+                            loadedPost[0] = new Post(localPost);
+                            return;
+                        }
+                        prepareFullServerPosts(Collections.singletonList(serverPost));
+                        realm.insertOrUpdate(serverPost);
+                        loadedPost[0] = new Post(serverPost);
+                    }, () -> {
+                        if (loadedPost[0] != null) {
+                            getBus().post(new PostLoadedEvent(loadedPost[0]));
+                        } else {
+                            getBus().post(new PostLoadErrorEvent(event.uuid, new ApiFailure<>(
+                                    new IllegalStateException("Post deleted while loading"))));
+                        }
+                    });
+                } else if (NetworkUtils.isUnauthorized(response)) {
+                    // defer the event and try to re-authorize
+                    refreshAccessToken(event);
+                } else {
+                    getBus().post(new PostLoadErrorEvent(event.uuid,
+                            new ApiFailure<>(response)));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<PostList> call, Throwable error) {
+                // error in transport layer, or lower
+                getBus().post(new PostLoadErrorEvent(event.uuid, new ApiFailure<>(error)));
+            }
+        });
+    }
+
     @Subscribe
     public void onCreatePostEvent(final CreatePostEvent event) {
         Crashlytics.log(Log.DEBUG, TAG, "[onCreatePostEvent] creating new post");
         Post newPost = new Post();
         newPost.addPendingAction(PendingAction.CREATE);
-        newPost.setUuid(getTempUniqueId(Post.class));
-        createOrUpdateModel(newPost);                    // save the local post to db
-        getBus().post(new PostCreatedEvent(newPost));
-        getBus().post(new SyncPostsEvent(false));
+        mWriteQueue.enqueue(realm -> {
+            // generate the temp id inside the transaction, so it can't clash with another write
+            newPost.setUuid(getTempUniqueId(realm, Post.class));
+            newPost.updateSortKey();
+            newPost.setContentLoaded(true);
+            realm.insertOrUpdate(newPost);              // save the local post to db
+        }, () -> {
+            mUserSavedPostUuids.add(newPost.getUuid());
+            getBus().post(new PostCreatedEvent(newPost));
+            getBus().post(new SyncPostsEvent(false));
+        });
     }
 
     @Subscribe
     public void onSyncPostsEvent(final SyncPostsEvent event) {
-        // FIXME (1) this prevents e.g., double draft creation but it may prevent e.g. a post from
-        // FIXME     being synced when it is triggered when a previous sync is in progress
-        // FIXME (2) also ensure 2 sync requests with different values for forceNetworkCall do
-        // FIXME     result in a network call instead of blindly skipping (see comment in
-        // FIXME     onSavePostEvent marked "synchack")
-        // don't trigger another sync if it is already in progress
-        if (mbSyncOnGoing) {
-            return;
-        }
         if (event.loadCachedData) {
             LoadPostsEvent loadPostsEvent = new LoadPostsEvent(false);
             mRefreshEventsQueue.add(loadPostsEvent);
@@ -613,6 +894,12 @@ public class NetworkService {
             refreshSucceeded(event);
             return;
         }
+        // don't run 2 syncs concurrently (e.g., that would create the same draft twice); instead,
+        // run a single follow-up sync once this one is done
+        if (mbSyncOnGoing) {
+            coalesceSyncPostsEvent(event);
+            return;
+        }
 
         final List<Post> localDeletedPosts = copyPosts(mRealm.where(Post.class)
                 .equalTo("pendingActions.type", PendingAction.DELETE)
@@ -624,13 +911,23 @@ public class NetworkService {
                 .equalTo("pendingActions.type", PendingAction.EDIT)
                 .findAll());
 
-        Deque<Post> postUploadQueue = new ArrayDeque<>();
-        postUploadQueue.addAll(localDeletedPosts);
-        postUploadQueue.addAll(localNewPosts);
-        postUploadQueue.addAll(localEditedPosts);
+        // posts that refer to images still in the upload outbox are held back until the images
+        // are uploaded, at which point the placeholders are replaced and another sync is triggered
+        RealmResults<PendingUpload> pendingUploads = mRealm.where(PendingUpload.class)
+                .isNull("remoteUrl")
+                .findAll();
+        if (! pendingUploads.isEmpty()) {
+            List<String> placeholderUrls = new ArrayList<>(pendingUploads.size());
+            for (PendingUpload upload : pendingUploads) {
+                placeholderUrls.add(upload.getPlaceholderUrl());
+            }
+            removePostsWithPlaceholders(localNewPosts, placeholderUrls);
+            removePostsWithPlaceholders(localEditedPosts, placeholderUrls);
+            getBus().post(new UploadPendingFilesEvent());
+        }
 
         // nothing to upload
-        if (postUploadQueue.isEmpty()) {
+        if (localDeletedPosts.isEmpty() && localNewPosts.isEmpty() && localEditedPosts.isEmpty()) {
             LoadPostsEvent loadPostsEvent = new LoadPostsEvent(event.forceNetworkCall);
             mRefreshEventsQueue.add(loadPostsEvent);
             getBus().post(loadPostsEvent);
@@ -644,20 +941,11 @@ public class NetworkService {
         // ugly hack (suggested by the IDE) because this must be declared "final"
         final ApiFailure[] uploadError = {null};
 
-        final Action0 syncFinishedCB = () -> {
-            // delete local copies
-            if (!postsToDelete.isEmpty()) {
-                RealmQuery<Post> deleteQuery = mRealm.where(Post.class);
-                for (int i = 0; i < postsToDelete.size(); ++i) {
-                    Post post = postsToDelete.get(i);
-                    if (i > 0) deleteQuery.or();
-                    deleteQuery.equalTo("uuid", post.getUuid());
-                }
-                deleteModels(deleteQuery.findAll());
-            }
-
+        final Action0 onLocalCopiesDeleted = () -> {
             ApiFailure apiFailure = uploadError[0];
-            if (apiFailure != null && NetworkUtils.isUnauthorized(apiFailure.response)) {
+            boolean isUnauthorized = (apiFailure != null
+                    && NetworkUtils.isUnauthorized(apiFailure.response));
+            if (isUnauthorized) {
                 // defer the event and try to re-authorize
                 refreshAccessToken(event);
             } else {
@@ -667,7 +955,7 @@ public class NetworkService {
                     //noinspection ConstantConditions
                     refreshFailed(event, apiFailure);
                 }
-                getBus().post(new PostsLoadedEvent(getPostsSorted(), POSTS_FETCH_LIMIT));
+                getBus().post(new PostsLoadedEvent(getPostsSorted()));
                 // if forceNetworkCall is true, first load from the db, AND only then from the network,
                 // to avoid a crash because local posts have been deleted above but are still being
                 // displayed, so we need to refresh the UI first
@@ -680,13 +968,29 @@ public class NetworkService {
 
             // SYNC COMPLETE
             mbSyncOnGoing = false;
+            runPendingSyncPostsEvent(isUnauthorized);
+        };
+
+        final Action0 syncFinishedCB = () -> {
+            // delete local copies
+            if (postsToDelete.isEmpty()) {
+                onLocalCopiesDeleted.call();
+                return;
+            }
+            String[] uuidsToDelete = new String[postsToDelete.size()];
+            for (int i = 0; i < postsToDelete.size(); ++i) {
+                uuidsToDelete[i] = postsToDelete.get(i).getUuid();
+            }
+            mWriteQueue.enqueue(realm -> realm.where(Post.class)
+                    .in("uuid", uuidsToDelete)
+                    .findAll()
+                    .deleteAllFromRealm(), onLocalCopiesDeleted::call);
         };
 
-        final Action2<Post, ApiFailure> onFailure = (post, apiFailure) -> {
+        final Action2<ApiFailure, Runnable> onFailure = (apiFailure, onDone) -> {
             uploadError[0] = apiFailure;
-            postUploadQueue.removeFirstOccurrence(post);
             getBus().post(new ApiErrorEvent(apiFailure));
-            if (postUploadQueue.isEmpty()) syncFinishedCB.call();
+            onDone.run();
         };
 
         // MAKE SURE THIS IS NEVER true LONGER THAN IT NEEDS TO BE, CHECK ALL EXIT POINTS OF THIS FN
@@ -696,56 +1000,62 @@ public class NetworkService {
         // the loop variable is *local* to the loop block, so it can be captured in a closure easily
         // this is unlike JavaScript, in which the same loop variable is mutated
         for (final Post localPost : localDeletedPosts) {
-            Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] deleting post id = " + localPost.getId());
-            mApi.deletePost(mAuthToken.getAuthHeader(), localPost.getId()).enqueue(new Callback<String>() {
-                @Override
-                public void onResponse(Call<String> call, Response<String> response) {
-                    if (response.isSuccessful()) {
-                        AnalyticsService.logDraftDeleted();
-                        postUploadQueue.removeFirstOccurrence(localPost);
-                        postsToDelete.add(localPost);
-                        if (postUploadQueue.isEmpty()) syncFinishedCB.call();
-                    } else {
-                        onFailure.call(localPost, new ApiFailure<>(response));
+            schedulePostUpload(localPost, onDone -> {
+                Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] deleting post id = " + localPost.getId());
+                mApi.deletePost(mAuthToken.getAuthHeader(), localPost.getId()).enqueue(new Callback<String>() {
+                    @Override
+                    public void onResponse(Call<String> call, Response<String> response) {
+                        if (response.isSuccessful()) {
+                            AnalyticsService.logDraftDeleted();
+                            postsToDelete.add(localPost);
+                            onDone.run();
+                        } else {
+                            onFailure.call(new ApiFailure<>(response), onDone);
+                        }
                     }
-                }
 
-                @Override
-                public void onFailure(Call<String> call, Throwable error) {
-                    onFailure.call(localPost, new ApiFailure<>(error));
-                }
+                    @Override
+                    public void onFailure(Call<String> call, Throwable error) {
+                        onFailure.call(new ApiFailure<>(error), onDone);
+                    }
+                });
             });
         }
 
         // 2. NEW POSTS
         for (final Post localPost : localNewPosts) {
-            Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] creating post");    // local new posts don't have an id
-            mApi.createPost(mAuthToken.getAuthHeader(), PostStubList.from(localPost)).enqueue(new Callback<PostList>() {
-                @Override
-                public void onResponse(Call<PostList> call, Response<PostList> response) {
-                    if (response.isSuccessful()) {
-                        PostList postList = response.body();
-                        AnalyticsService.logNewDraftUploaded();
-                        createOrUpdateModel(postList.posts);
-                        postUploadQueue.removeFirstOccurrence(localPost);
-                        postsToDelete.add(localPost);
-                        // FIXME this is a new post! how do subscribers know which post changed?
-                        getBus().post(new PostReplacedEvent(postList.posts.get(0)));
-                        if (postUploadQueue.isEmpty()) syncFinishedCB.call();
-                    } else {
-                        onFailure.call(localPost, new ApiFailure<>(response));
+            schedulePostUpload(localPost, onDone -> {
+                Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] creating post");    // local new posts don't have an id
+                mApi.createPost(mAuthToken.getAuthHeader(), PostStubList.from(localPost)).enqueue(new Callback<PostList>() {
+                    @Override
+                    public void onResponse(Call<PostList> call, Response<PostList> response) {
+                        if (response.isSuccessful()) {
+                            PostList postList = response.body();
+                            AnalyticsService.logNewDraftUploaded();
+                            mWriteQueue.enqueue(realm -> {
+                                prepareFullServerPosts(postList.posts);
+                                realm.insertOrUpdate(postList.posts);
+                            }, () -> {
+                                postsToDelete.add(localPost);
+                                // FIXME this is a new post! how do subscribers know which post changed?
+                                getBus().post(new PostReplacedEvent(postList.posts.get(0)));
+                                onDone.run();
+                            });
+                        } else {
+                            onFailure.call(new ApiFailure<>(response), onDone);
+                        }
                     }
-                }
 
-                @Override
-                public void onFailure(Call<PostList> call, Throwable error) {
-                    onFailure.call(localPost, new ApiFailure<>(error));
-                }
+                    @Override
+                    public void onFailure(Call<PostList> call, Throwable error) {
+                        onFailure.call(new ApiFailure<>(error), onDone);
+                    }
+                });
             });
         }
 
         // 3. EDITED POSTS
-        Action1<Post> uploadEditedPost = (editedPost) -> {
+        Action2<Post, Runnable> uploadEditedPost = (editedPost, onDone) -> {
             Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] updating post id = " + editedPost.getId());
             PostStubList postStubList = PostStubList.from(editedPost);
             mApi.updatePost(mAuthToken.getAuthHeader(), editedPost.getId(), postStubList).enqueue(new Callback<PostList>() {
@@ -753,22 +1063,26 @@ public class NetworkService {
                 public void onResponse(Call<PostList> call, Response<PostList> response) {
                     if (response.isSuccessful()) {
                         PostList postList = response.body();
-                        createOrUpdateModel(postList.posts);
-                        postUploadQueue.removeFirstOccurrence(editedPost);
-                        getBus().post(new PostSyncedEvent(editedPost.getUuid()));
-                        if (postUploadQueue.isEmpty()) syncFinishedCB.call();
+                        mWriteQueue.enqueue(realm -> {
+                            prepareFullServerPosts(postList.posts);
+                            realm.insertOrUpdate(postList.posts);
+                        }, () -> {
+                            getBus().post(new PostSyncedEvent(editedPost.getUuid()));
+                            onDone.run();
+                        });
                     } else {
-                        onFailure.call(editedPost, new ApiFailure<>(response));
+                        onFailure.call(new ApiFailure<>(response), onDone);
                     }
                 }
 
                 @Override
                 public void onFailure(Call<PostList> call, Throwable error) {
-                    onFailure.call(editedPost, new ApiFailure<>(error));
+                    onFailure.call(new ApiFailure<>(error), onDone);
                 }
             });
         };
-        for (final Post localPost : localEditedPosts) {
+        // downloads the full server copy of an edited post to check if the edits conflict with it
+        Action2<Post, Runnable> checkConflictAndUpload = (localPost, onDone) -> {
             Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] downloading edited post with id = " + localPost.getId() + " for comparison");
             mApi.getPost(mAuthToken.getAuthHeader(), localPost.getId()).enqueue(new Callback<PostList>() {
                 @Override
@@ -784,10 +1098,8 @@ public class NetworkService {
                         }
                         if (hasConflict && PostUtils.isDirty(serverPost, localPost)) {
                             Crashlytics.log(Log.WARN, TAG, "[onSyncPostsEvent] conflict found for post id = " + localPost.getId());
-                            postUploadQueue.removeFirstOccurrence(localPost);
-                            if (postUploadQueue.isEmpty()) syncFinishedCB.call();
                             localPost.setConflictState(Post.CONFLICT_UNRESOLVED);
-                            createOrUpdateModel(localPost);
+                            mWriteQueue.enqueue(realm -> realm.insertOrUpdate(localPost), onDone);
                             Crashlytics.log(Log.DEBUG, TAG, "localPost updated at:" + localPost.getUpdatedAt().toString());
                             Crashlytics.log(Log.DEBUG, TAG, "serverPost updated at: " + serverPost.getUpdatedAt().toString());
                             Crashlytics.log(Log.DEBUG, TAG, "localPost contents:\n" + localPost.getMarkdown());
@@ -795,32 +1107,94 @@ public class NetworkService {
                             Crashlytics.logException(new PostConflictFoundException());
                             getBus().post(new PostConflictFoundEvent(localPost, serverPost));
                         } else {
-                            uploadEditedPost.call(localPost);
+                            uploadEditedPost.call(localPost, onDone);
                         }
                     } else {
                         // if we can't get the server post, optimistically upload the local copy
-                        uploadEditedPost.call(localPost);
+                        uploadEditedPost.call(localPost, onDone);
                     }
                 }
 
                 @Override
                 public void onFailure(Call<PostList> call, Throwable error) {
                     // if we can't get the server post, optimistically upload the local copy
-                    uploadEditedPost.call(localPost);
+                    uploadEditedPost.call(localPost, onDone);
                 }
             });
+        };
+
+        // completions are tracked per post by the scheduler, this runs once all of them are done
+        if (localEditedPosts.isEmpty()) {
+            mPostUploadScheduler.runWhenIdle(syncFinishedCB::call);
+            return;
+        }
+
+        // find edited posts that have changed on the server too, using a single request for just
+        // their updatedAt timestamps, and only download those in full to check for conflicts
+        List<Integer> editedPostIds = new ArrayList<>(localEditedPosts.size());
+        for (Post localPost : localEditedPosts) {
+            editedPostIds.add(localPost.getId());
         }
+        Action1<Map<Integer, Date>> scheduleEditedPosts = (serverUpdatedAtById) -> {
+            for (final Post localPost : localEditedPosts) {
+                // if we don't know whether the server copy changed, assume it did
+                boolean changedOnServer = true;
+                if (serverUpdatedAtById != null) {
+                    Date serverUpdatedAt = serverUpdatedAtById.get(localPost.getId());
+                    // if the post is missing, optimistically upload the local copy, same as below
+                    changedOnServer = (serverUpdatedAt != null
+                            && !serverUpdatedAt.equals(localPost.getUpdatedAt()));
+                }
+                if (changedOnServer) {
+                    schedulePostUpload(localPost, onDone -> checkConflictAndUpload.call(localPost, onDone));
+                } else {
+                    schedulePostUpload(localPost, onDone -> uploadEditedPost.call(localPost, onDone));
+                }
+            }
+            mPostUploadScheduler.runWhenIdle(syncFinishedCB::call);
+        };
+        Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] checking " + editedPostIds.size()
+                + " edited posts for changes on the server");
+        mApi.getPostManifest(mAuthToken.getAuthHeader(), GhostApiUtils.makeIdsFilter(editedPostIds))
+                .enqueue(new Callback<PostManifest>() {
+                    @Override
+                    public void onResponse(Call<PostManifest> call, Response<PostManifest> response) {
+                        if (response.isSuccessful()) {
+                            List<PostManifest.Entry> entries = response.body().posts;
+                            Map<Integer, Date> serverUpdatedAtById = new HashMap<>(entries.size());
+                            for (PostManifest.Entry entry : entries) {
+                                serverUpdatedAtById.put(entry.id, entry.updatedAt);
+                            }
+                            scheduleEditedPosts.call(serverUpdatedAtById);
+                        } else {
+                            // fall back to checking each post in full
+                            scheduleEditedPosts.call(null);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Call<PostManifest> call, Throwable error) {
+                        // fall back to checking each post in full
+                        scheduleEditedPosts.call(null);
+                    }
+                });
     }
 
     @Subscribe
     public void onSavePostEvent(SavePostEvent event) {
-        Post updatedPost = event.post;
+        // the transaction runs on a background thread, so it must not touch the editor's post (or
+        // its tags), which may be changed on this thread in the meantime
+        final Post updatedPost = new Post(event.post);
         Post realmPost = mRealm.where(Post.class)
                 .equalTo("id", event.post.getId())
                 .findFirst();
         Crashlytics.log(Log.DEBUG, TAG, "[onSavePostEvent] post id = " + event.post.getId());
 
-        if (realmPost.hasPendingAction(PendingAction.DELETE)) {
+        if (realmPost == null) {
+            // e.g., deleted by a sync since the editor opened it, or the user logged out
+            Crashlytics.logException(new IllegalArgumentException("Trying to save non-existent "
+                    + "post with id = " + event.post.getId()));
+        } else if (realmPost.hasPendingAction(PendingAction.DELETE)) {
             RuntimeException e = new IllegalArgumentException("Trying to save deleted post with id = " + realmPost.getId());
             Crashlytics.logException(e);
         }
@@ -832,37 +1206,55 @@ public class NetworkService {
         // TODO to resolve this we would require some notion of pending actions associated with
         // TODO specific fields of a post rather than the entire post
 
-        // save tags to Realm first
-        for (Tag tag : updatedPost.getTags()) {
-            if (tag.getUuid() == null) {
-                tag.setUuid(getTempUniqueId(Tag.class));
-                createOrUpdateModel(tag);
+        // the editor always has the full post
+        updatedPost.setContentLoaded(true);
+
+        // the saved post is copied out of the background Realm, so it can be used on this thread
+        final Post[] savedPost = {null};
+        mWriteQueue.enqueue(realm -> {
+            // save tags to Realm first
+            for (Tag tag : updatedPost.getTags()) {
+                if (tag.getUuid() == null) {
+                    tag.setUuid(getTempUniqueId(realm, Tag.class));
+                    realm.insertOrUpdate(tag);
+                }
             }
-        }
-
-        // don't set updatedAt to enable easy conflict detection by comparing updatedAt values
-        //updatedPost.setUpdatedAt(new Date());              // mark as updated, to promote in sorted order
-        createOrUpdateModel(updatedPost);                  // save the local post to db
 
-        // must set PendingActions after other stuff, else the updated post's pending actions will
-        // override the one in Realm!
-        //noinspection StatementWithEmptyBody
-        if (realmPost.hasPendingAction(PendingAction.CREATE)) {
-            // no-op; if the post is yet to be created, we DO NOT change the PendingAction on it
-        } else if (realmPost.isDraft()) {
-            clearAndSetPendingActionOnPost(realmPost, PendingAction.EDIT);
-        } else if ((realmPost.isScheduled() || realmPost.isPublished()) && event.isAutoSave) {
-            clearAndSetPendingActionOnPost(realmPost, PendingAction.EDIT_LOCAL);
-        } else {
-            // user hit "update" explicitly, on a scheduled or published post, so mark it for uploading
-            clearAndSetPendingActionOnPost(realmPost, PendingAction.EDIT);
-        }
+            // don't set updatedAt to enable easy conflict detection by comparing updatedAt values
+            //updatedPost.setUpdatedAt(new Date());              // mark as updated, to promote in sorted order
+            Post post = realm.copyToRealmOrUpdate(updatedPost);  // save the local post to db
 
-        Post savedPost = new Post(realmPost);   // realmPost is guaranteed to be up-to-date
-        getBus().post(new PostSavedEvent(savedPost));
-        // FIXME #synchack: force a network call because this preempts sync requests from the data
-        // FIXME refresh phase triggered when going back to the post list
-        getBus().post(new SyncPostsEvent(true));
+            // the editor may not know the server URLs of images uploaded since it inserted them
+            for (PendingUpload upload : realm.where(PendingUpload.class).isNotNull("remoteUrl").findAll()) {
+                replaceUploadPlaceholder(post, upload.getPlaceholderUrl(), upload.getRemoteUrl());
+            }
+            // ...or that uploads it inserted were given up on
+            removeAbandonedUploadPlaceholders(realm, post);
+
+            // must set PendingActions after other stuff, else the updated post's pending actions will
+            // override the one in Realm!
+            //noinspection StatementWithEmptyBody
+            if (post.hasPendingAction(PendingAction.CREATE)) {
+                // no-op; if the post is yet to be created, we DO NOT change the PendingAction on it
+            } else if (post.isDraft()) {
+                clearAndSetPendingActionOnPost(post, PendingAction.EDIT);
+            } else if ((post.isScheduled() || post.isPublished()) && event.isAutoSave) {
+                clearAndSetPendingActionOnPost(post, PendingAction.EDIT_LOCAL);
+            } else {
+                // user hit "update" explicitly, on a scheduled or published post, so mark it for uploading
+                clearAndSetPendingActionOnPost(post, PendingAction.EDIT);
+            }
+            post.updateSortKey();
+            savedPost[0] = new Post(post);
+        }, () -> {
+            if (! event.isAutoSave) {
+                mUserSavedPostUuids.add(savedPost[0].getUuid());
+            }
+            getBus().post(new PostSavedEvent(savedPost[0]));
+            // no need to force a network call here: if the post list triggers a refresh while
+            // this sync is in progress, that request is coalesced into a follow-up sync
+            getBus().post(new SyncPostsEvent(false));
+        });
     }
 
     @Subscribe
@@ -874,13 +1266,20 @@ public class NetworkService {
         if (realmPost == null) {
             RuntimeException e = new IllegalArgumentException("Trying to delete post with non-existent id = " + postId);
             Crashlytics.logException(e);
-        } else if (realmPost.hasPendingAction(PendingAction.CREATE)) {
-            deleteModel(realmPost);
-            getBus().post(new PostDeletedEvent(postId));
         } else {
-            // don't delete locally until the remote copy is deleted
-            clearAndSetPendingActionOnPost(realmPost, PendingAction.DELETE);
-            getBus().post(new PostDeletedEvent(postId));
+            String uuid = realmPost.getUuid();
+            mWriteQueue.enqueue(realm -> {
+                Post post = realm.where(Post.class).equalTo("uuid", uuid).findFirst();
+                if (post == null) {
+                    return;     // already deleted by an earlier write
+                }
+                if (post.hasPendingAction(PendingAction.CREATE)) {
+                    RealmObject.deleteFromRealm(post);
+                } else {
+                    // don't delete locally until the remote copy is deleted
+                    clearAndSetPendingActionOnPost(post, PendingAction.DELETE);
+                }
+            }, () -> getBus().post(new PostDeletedEvent(postId)));
 
             // DON'T trigger a sync here, because it is automatically triggered by the post list anyway
             // triggering it twice causes crashes due to invalid Realm objects (deleted twice)
@@ -888,71 +1287,55 @@ public class NetworkService {
         }
     }
 
-    @SuppressLint("DefaultLocale")
     @Subscribe
     public void onFileUploadEvent(FileUploadEvent event) {
-        if (! validateAccessToken(event)) return;
-        Crashlytics.log(Log.DEBUG, TAG, "[onFileUploadEvent] uploading file");
-
-        InputStream inputStream = event.inputStream;
-        String mimeType = event.mimeType;
-
-        byte[] fileBytes = null;
-        try {
-            final int CHUNK_SIZE = 4096;
-            ByteArrayOutputStream baos = new ByteArrayOutputStream(inputStream.available());
-            byte[] buffer = new byte[CHUNK_SIZE];
-            int read;
-            while ((read = inputStream.read(buffer)) != -1) {
-                baos.write(buffer, 0, read);
-            }
+        Crashlytics.log(Log.DEBUG, TAG, "[onFileUploadEvent] adding file to upload outbox");
+        PendingUpload upload = new PendingUpload(UUID.randomUUID().toString(), event.filePath,
+                event.mimeType, event.placeholderUrl, System.currentTimeMillis());
+        mWriteQueue.enqueue(realm -> {
+            realm.insertOrUpdate(upload);
+            realm.where(PendingUpload.class)
+                    .isNotNull("remoteUrl")
+                    .lessThan("createdAt", upload.getCreatedAt() - UPLOADED_FILE_TTL)
+                    .findAll()
+                    .deleteAllFromRealm();
+        }, () -> getBus().post(new UploadPendingFilesEvent()));
+    }
 
-            fileBytes = baos.toByteArray();
-        } catch (IOException e) {
-            getBus().post(new FileUploadErrorEvent(new ApiFailure(e)));
-        } finally {
-            try {
-                inputStream.close();
-            } catch (IOException e) {
-                getBus().post(new FileUploadErrorEvent(new ApiFailure(e)));
-            }
+    @Subscribe
+    public void onUploadPendingFilesEvent(UploadPendingFilesEvent event) {
+        mHandler.removeCallbacks(mUploadPendingFilesRunnable);
+        if (mAuthToken == null) {
+            return;     // logged out
         }
-
-        if (fileBytes == null) {
+        if (event.loadCachedData) {
+            // couldn't re-authorize, leave the images in the outbox and try again later
+            mHandler.postDelayed(mUploadPendingFilesRunnable, UploadRetryPolicy.BASE_RETRY_DELAY);
             return;
         }
-
-        // generate a random filename, Ghost chokes without it
-        String ext = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
-        String filename = String.format("upload-%d.%s", System.currentTimeMillis() / 1000, ext);
-
-        RequestBody body = RequestBody.create(MediaType.parse(mimeType), fileBytes);
-        MultipartBody.Part filePart = MultipartBody.Part.createFormData("uploadimage", filename, body);
-
-        mApi.uploadFile(mAuthToken.getAuthHeader(), filePart).enqueue(new Callback<JsonElement>() {
-            @Override
-            public void onResponse(Call<JsonElement> call, Response<JsonElement> response) {
-                if (response.isSuccessful()) {
-                    String url = response.body().getAsString();
-                    getBus().post(new FileUploadedEvent(url));
-                } else {
-                    if (NetworkUtils.isUnauthorized(response)) {
-                        // defer the event and try to re-authorize
-                        refreshAccessToken(event);
-                    } else {
-                        ApiFailure<JsonElement> apiFailure = new ApiFailure<>(response);
-                        getBus().post(new FileUploadErrorEvent(apiFailure));
-                        getBus().post(new ApiErrorEvent(apiFailure));
-                    }
-                }
+        long now = System.currentTimeMillis();
+        List<PendingUpload> dueUploads = new ArrayList<>();
+        for (PendingUpload upload : mRealm.where(PendingUpload.class)
+                .isNull("remoteUrl")
+                .findAllSorted("createdAt")) {
+            if (upload.getNextAttemptAt() <= now && ! mFileUploadsInFlight.contains(upload.getId())) {
+                dueUploads.add(mRealm.copyFromRealm(upload));
             }
-
-            @Override
-            public void onFailure(Call<JsonElement> call, Throwable error) {
-                // error in transport layer, or lower
-                getBus().post(new ApiErrorEvent(new ApiFailure(error)));
+        }
+        if (dueUploads.isEmpty()) {
+            scheduleNextFileUpload();
+            return;
+        }
+        if (! validateAccessToken(event)) return;
+        // the rest wait for a free slot, see scheduleNextFileUpload
+        for (PendingUpload upload : dueUploads) {
+            if (mFileUploadsInFlight.size() >= MAX_CONCURRENT_FILE_UPLOADS) {
+                break;
             }
-        });
+            mFileUploadsInFlight.add(upload.getId());
+            uploadFile(event, upload);
+        }
+        scheduleNextFileUpload();
     }
 
     @Subscribe
@@ -981,25 +1364,44 @@ public class NetworkService {
         // copy auth token before closing the Realm
         final AuthToken tokenToRevoke = new AuthToken(mAuthToken);
 
-        // clear all persisted blog data to avoid primary key conflicts
-        mRealm.close();
-        Realm.deleteRealm(mRealm.getConfiguration());
-        mRealm = Realm.getDefaultInstance();
-        AppState.getInstance(SpectreApplication.getInstance())
-                .setBoolean(AppState.Key.LOGGED_IN, false);
         // reset state, to be sure
+        mHandler.removeCallbacks(mAccessTokenRefreshRunnable);
+        mHandler.removeCallbacks(mUploadPendingFilesRunnable);
         mAuthToken = null;
         mBlogUrl = null;
         mApiEventQueue.clear();
         mRefreshEventsQueue.clear();
+        mPostUploadScheduler.clear();
+        mUserSavedPostUuids.clear();
+        mFileUploadsInFlight.clear();
+        mImagePrefetcher.cancel();
+        Schedulers.io().scheduleDirect(mPinnedImageStore::clear);
         mbAuthRequestOnGoing = false;
         mbSyncOnGoing = false;
+        mPendingSyncPostsEvent = null;
         mRefreshError = null;
-        getBus().post(new LogoutStatusEvent(true, false));
+        ++mPostsSyncGeneration;
+        AppState.getInstance(SpectreApplication.getInstance())
+                .setBoolean(AppState.Key.LOGGED_IN, false);
+        resetPostsSyncState();
+
+        // drop writes for the old blog, and wait for the one in progress (if any) to finish,
+        // because the Realm can't be deleted while a background transaction still has it open
+        mWriteQueue.clear();
+        mWriteQueue.runWhenIdle(() -> {
+            // clear all persisted blog data to avoid primary key conflicts
+            mRealm.close();
+            Realm.deleteRealm(mRealm.getConfiguration());
+            mRealm = Realm.getDefaultInstance();
+            mWriteQueue = new RealmWriteQueue(mRealm);
+            // the outbox is empty now, so this deletes the local copies of all its images
+            mWriteQueue.enqueue(realm -> deleteOrphanedOutboxFiles(realm, 0));
+            getBus().post(new LogoutStatusEvent(true, false));
+        });
 
         // revoke access and refresh tokens in the background
         GhostApiService apiToRevokeOn = mApi;
-        GhostApiUtils.doWithClientSecret(apiToRevokeOn, event.blogUrl, clientSecret -> {
+        doWithClientSecret(apiToRevokeOn, event.blogUrl, (clientSecret, fromCache) -> {
             RevokeReqBody refreshTokenRevokeReqBody = new RevokeReqBody(RevokeReqBody.TOKEN_TYPE_REFRESH,
                     tokenToRevoke.getRefreshToken(), clientSecret);
             RevokeReqBody accessTokenRevokeReqBody = new RevokeReqBody(RevokeReqBody.TOKEN_TYPE_ACCESS,
@@ -1014,27 +1416,119 @@ public class NetworkService {
 
 
     // private methods
-    private void clearAndSetPendingActionOnPost(@NonNull Post post, @PendingAction.Type String newPendingAction) {
+    /**
+     * Merges a sync request that arrived while a sync is in progress into the pending follow-up
+     * sync, keeping the strongest forceNetworkCall flag. If any of the merged requests is part of
+     * a data refresh, the follow-up takes its place, so the refresh completes only when the
+     * follow-up does.
+     */
+    private void coalesceSyncPostsEvent(@NonNull SyncPostsEvent event) {
+        SyncPostsEvent pending = mPendingSyncPostsEvent;
+        boolean forceNetworkCall = event.forceNetworkCall
+                || (pending != null && pending.forceNetworkCall);
+        SyncPostsEvent merged = new SyncPostsEvent(forceNetworkCall);
+        boolean isPartOfRefresh = mRefreshEventsQueue.removeFirstOccurrence(event);
+        if (pending != null && mRefreshEventsQueue.removeFirstOccurrence(pending)) {
+            isPartOfRefresh = true;
+        }
+        if (isPartOfRefresh) {
+            mRefreshEventsQueue.add(merged);
+        }
+        mPendingSyncPostsEvent = merged;
+        Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] sync in progress, follow-up sync "
+                + "queued with forceNetworkCall = " + forceNetworkCall);
+    }
+
+    private void runPendingSyncPostsEvent(boolean deferUntilAuthorized) {
+        SyncPostsEvent pending = mPendingSyncPostsEvent;
+        mPendingSyncPostsEvent = null;
+        if (pending == null) {
+            return;
+        }
+        if (deferUntilAuthorized) {
+            // run it after the event that is waiting for re-authorization
+            mApiEventQueue.addLast(pending);
+        } else {
+            getBus().post(pending);
+        }
+    }
+
+    private void schedulePostUpload(@NonNull Post post,
+                                    @NonNull PostUploadScheduler.Operation operation) {
+        // posts the user explicitly saved jump ahead of other pending changes
+        boolean userInitiated = mUserSavedPostUuids.remove(post.getUuid());
+        mPostUploadScheduler.schedule(post.getUuid(), userInitiated, operation);
+    }
+
+    // must be called inside a transaction on the Realm that the post belongs to
+    private static void clearAndSetPendingActionOnPost(@NonNull Post post,
+                                                       @PendingAction.Type String newPendingAction) {
         List<PendingAction> pendingActions = post.getPendingActions();
-        mRealm.executeTransaction(realm -> {
-            // make a copy since the original is a live-updating RealmList
-            List<PendingAction> pendingActionsCopy = new ArrayList<>(pendingActions);
-            for (PendingAction pa : pendingActionsCopy) {
-                RealmObject.deleteFromRealm(pa);
-            }
-            pendingActions.clear();
-            post.addPendingAction(newPendingAction);
-        });
+        // make a copy since the original is a live-updating RealmList
+        List<PendingAction> pendingActionsCopy = new ArrayList<>(pendingActions);
+        for (PendingAction pa : pendingActionsCopy) {
+            RealmObject.deleteFromRealm(pa);
+        }
+        pendingActions.clear();
+        post.addPendingAction(newPendingAction);
+        post.updateSortKey();
     }
 
     private boolean validateAccessToken(@NonNull ApiCallEvent event) {
+        if (mAuthToken == null) {
+            // logged out, e.g., this event was posted by a callback of a write made before that
+            Crashlytics.log(Log.WARN, TAG, "[validateAccessToken] not logged in, dropping "
+                    + event.getClass().getSimpleName());
+            return false;
+        }
         boolean valid = ! hasAccessTokenExpired();
         if (! valid) {
             refreshAccessToken(event);
+        } else if (AccessTokenRefreshPolicy.shouldRefresh(DateTimeUtils.getEpochSeconds(),
+                mAuthToken.getCreatedAt(), mAuthToken.getExpiresIn())) {
+            // the token is still usable, so let this request go ahead with it while a new one is
+            // fetched (e.g., if the scheduled refresh didn't run because the app was asleep)
+            refreshAccessTokenInBackground();
         }
         return valid;
     }
 
+    /**
+     * Schedules a background refresh of the current access token some time before it expires, so
+     * that requests made around its expiry don't have to wait for the refresh to finish.
+     */
+    private void scheduleAccessTokenRefresh() {
+        mHandler.removeCallbacks(mAccessTokenRefreshRunnable);
+        if (mAuthToken == null) return;
+        long delay = AccessTokenRefreshPolicy.getRefreshDelay(DateTimeUtils.getEpochSeconds(),
+                mAuthToken.getCreatedAt(), mAuthToken.getExpiresIn());
+        mHandler.postDelayed(mAccessTokenRefreshRunnable, TimeUnit.SECONDS.toMillis(delay));
+    }
+
+    private void refreshAccessTokenInBackground() {
+        mHandler.removeCallbacks(mAccessTokenRefreshRunnable);
+        // if a login or refresh is already in flight, this piggybacks on it
+        if (mAuthToken == null || mbAuthRequestOnGoing) return;
+        Crashlytics.log(Log.DEBUG, TAG, "Refreshing access token in the background");
+        refreshAccessToken(null);
+    }
+
+    /**
+     * Called when a refresh fails while the current access token may still be usable. Requests
+     * waiting for the refresh get the failure as usual, but a failed background refresh is retried
+     * quietly, since no request depends on it yet.
+     *
+     * @return true if the failure should be reported
+     */
+    private boolean onAccessTokenRefreshFailed() {
+        if (mAuthToken == null) return false;
+        if (! mApiEventQueue.isEmpty() || hasAccessTokenExpired()) return true;
+        long delay = AccessTokenRefreshPolicy.getRetryDelay(DateTimeUtils.getEpochSeconds(),
+                mAuthToken.getCreatedAt(), mAuthToken.getExpiresIn());
+        mHandler.postDelayed(mAccessTokenRefreshRunnable, TimeUnit.SECONDS.toMillis(delay));
+        return false;
+    }
+
     private void refreshAccessToken(@Nullable final ApiCallEvent eventToDefer) {
         if (eventToDefer != null) {
             mApiEventQueue.addLast(eventToDefer);
@@ -1050,13 +1544,17 @@ public class NetworkService {
         }
 
         mbAuthRequestOnGoing = true;
-        GhostApiUtils.doWithClientSecret(mApi, mBlogUrl, clientSecret -> {
+        doWithClientSecret(mApi, mBlogUrl, (clientSecret, fromCache) -> {
+            if (mAuthToken == null) return;     // logged out in the meantime
             final RefreshReqBody credentials = new RefreshReqBody(mAuthToken.getRefreshToken(),
                     clientSecret);
             mApi.refreshAuthToken(credentials).enqueue(new Callback<AuthToken>() {
                 @Override
                 public void onResponse(Call<AuthToken> call, Response<AuthToken> response) {
                     mbAuthRequestOnGoing = false;
+                    if (mAuthToken == null) {
+                        return;     // logged out while the refresh was in flight
+                    }
                     if (response.isSuccessful()) {
                         // since this is a *refreshed* auth token, there is no refresh token in it,
                         // so add it manually
@@ -1074,8 +1572,10 @@ public class NetworkService {
                             } catch (IOException e) {
                                 Log.e(TAG, Log.getStackTraceString(e));
                             }
+                            // the client secret may be stale too, so get a fresh one for the login
+                            clearCachedClientSecret();
                             postLoginStartEvent();
-                        } else {
+                        } else if (onAccessTokenRefreshFailed()) {
                             ApiFailure<AuthToken> apiFailure = new ApiFailure<>(response);
                             ApiErrorList apiErrors = parseApiErrors(mRetrofit, response);
                             getBus().post(new LoginErrorEvent<>(apiFailure, apiErrors, null, false));
@@ -1088,6 +1588,7 @@ public class NetworkService {
                 public void onFailure(Call<AuthToken> call, Throwable error) {
                     // error in transport layer, or lower
                     mbAuthRequestOnGoing = false;
+                    if (! onAccessTokenRefreshFailed()) return;
                     ApiFailure<AuthToken> apiFailure = new ApiFailure<>(error);
                     getBus().post(new LoginErrorEvent<>(apiFailure, null, null, false));
                     flushApiEventQueue(true);
@@ -1158,6 +1659,242 @@ public class NetworkService {
         }
     }
 
+    @SuppressLint("DefaultLocale")
+    private void uploadFile(@NonNull UploadPendingFilesEvent event, @NonNull PendingUpload upload) {
+        Crashlytics.log(Log.DEBUG, TAG, "[uploadFile] uploading file, attempt #"
+                + (upload.getAttempts() + 1));
+
+        String mimeType = upload.getMimeType();
+
+        // generate a random filename, Ghost chokes without it
+        String ext = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
+        String filename = String.format("upload-%d.%s", System.currentTimeMillis() / 1000, ext);
+
+        // stream the file while uploading, instead of reading it into memory first
+        File file = new File(upload.getFilePath());
+        RequestBody body = new UriRequestBody(SpectreApplication.getInstance().getContentResolver(),
+                Uri.fromFile(file), MediaType.parse(mimeType), (bytesUploaded, totalBytes) -> {
+                    // called on OkHttp's thread, but events must be posted on the main thread
+                    mHandler.post(() -> getBus().post(new FileUploadProgressEvent(
+                            upload.getPlaceholderUrl(), bytesUploaded, totalBytes)));
+                });
+        MultipartBody.Part filePart = MultipartBody.Part.createFormData("uploadimage", filename, body);
+
+        mApi.uploadFile(mAuthToken.getAuthHeader(), filePart).enqueue(new Callback<JsonElement>() {
+            @Override
+            public void onResponse(Call<JsonElement> call, Response<JsonElement> response) {
+                if (response.isSuccessful()) {
+                    onFileUploaded(upload, response.body().getAsString());
+                } else if (NetworkUtils.isUnauthorized(response)) {
+                    // defer the event and try to re-authorize
+                    mFileUploadsInFlight.remove(upload.getId());
+                    refreshAccessToken(event);
+                } else {
+                    onFileUploadFailed(upload, new ApiFailure<>(response),
+                            UploadRetryPolicy.isRetryable(response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<JsonElement> call, Throwable error) {
+                // error in transport layer, or lower (including failure to read the file); there's
+                // no point retrying if the file is gone
+                onFileUploadFailed(upload, new ApiFailure(error), file.exists());
+            }
+        });
+    }
+
+    private void onFileUploaded(@NonNull PendingUpload upload, @NonNull String url) {
+        String placeholderUrl = upload.getPlaceholderUrl();
+        mWriteQueue.enqueue(realm -> {
+            PendingUpload realmUpload = realm.where(PendingUpload.class)
+                    .equalTo("id", upload.getId())
+                    .findFirst();
+            if (realmUpload == null) {
+                return;     // logged out in the meantime
+            }
+            realmUpload.setRemoteUrl(url);
+            RealmResults<Post> posts = realm.where(Post.class)
+                    .contains("markdown", placeholderUrl)
+                    .or()
+                    .equalTo("image", placeholderUrl)
+                    .findAll();
+            for (Post post : posts) {
+                replaceUploadPlaceholder(post, placeholderUrl, url);
+            }
+        }, () -> {
+            mFileUploadsInFlight.remove(upload.getId());
+            scheduleNextFileUpload();
+            //noinspection ResultOfMethodCallIgnored
+            new File(upload.getFilePath()).delete();
+            getBus().post(new FileUploadedEvent(placeholderUrl, url));
+            // upload the posts that were waiting for this image
+            getBus().post(new SyncPostsEvent(false));
+        });
+    }
+
+    private void onFileUploadFailed(@NonNull PendingUpload upload, @NonNull ApiFailure apiFailure,
+                                    boolean willRetry) {
+        String id = upload.getId();
+        if (willRetry) {
+            int attempts = upload.getAttempts() + 1;
+            long retryDelay = UploadRetryPolicy.getRetryDelay(attempts);
+            Crashlytics.log(Log.WARN, TAG, "[onFileUploadFailed] upload failed " + attempts
+                    + " time(s), retrying in " + (retryDelay / 1000) + " seconds");
+            mWriteQueue.enqueue(realm -> {
+                PendingUpload realmUpload = realm.where(PendingUpload.class)
+                        .equalTo("id", id)
+                        .findFirst();
+                if (realmUpload != null) {
+                    realmUpload.setAttempts(attempts);
+                    realmUpload.setNextAttemptAt(System.currentTimeMillis() + retryDelay);
+                }
+            }, () -> {
+                mFileUploadsInFlight.remove(id);
+                scheduleNextFileUpload();
+            });
+        } else {
+            // give up; the image is removed from posts referring to it in the same transaction,
+            // because they're no longer held back from syncing, and the placeholder is a path on
+            // this device that must never reach the server
+            String placeholderUrl = upload.getPlaceholderUrl();
+            mWriteQueue.enqueue(realm -> {
+                PendingUpload realmUpload = realm.where(PendingUpload.class)
+                        .equalTo("id", id)
+                        .findFirst();
+                if (realmUpload != null) {
+                    RealmObject.deleteFromRealm(realmUpload);
+                }
+                RealmResults<Post> posts = realm.where(Post.class)
+                        .contains("markdown", placeholderUrl)
+                        .or()
+                        .equalTo("image", placeholderUrl)
+                        .findAll();
+                for (Post post : posts) {
+                    removeUploadPlaceholder(post, placeholderUrl);
+                }
+            }, () -> {
+                mFileUploadsInFlight.remove(id);
+                scheduleNextFileUpload();
+                //noinspection ResultOfMethodCallIgnored
+                new File(upload.getFilePath()).delete();
+                getBus().post(new SyncPostsEvent(false));
+            });
+            getBus().post(new ApiErrorEvent(apiFailure));
+        }
+        getBus().post(new FileUploadErrorEvent(upload.getPlaceholderUrl(), apiFailure, willRetry));
+    }
+
+    // wakes up the outbox when a slot is free and the earliest upload that is waiting (for a slot,
+    // or after backing off) is due
+    private void scheduleNextFileUpload() {
+        mHandler.removeCallbacks(mUploadPendingFilesRunnable);
+        if (mAuthToken == null || mFileUploadsInFlight.size() >= MAX_CONCURRENT_FILE_UPLOADS) {
+            // called again when an upload in progress finishes
+            return;
+        }
+        long nextAttemptAt = Long.MAX_VALUE;
+        for (PendingUpload upload : mRealm.where(PendingUpload.class).isNull("remoteUrl").findAll()) {
+            if (! mFileUploadsInFlight.contains(upload.getId())) {
+                nextAttemptAt = Math.min(nextAttemptAt, upload.getNextAttemptAt());
+            }
+        }
+        if (nextAttemptAt != Long.MAX_VALUE) {
+            long delay = Math.max(nextAttemptAt - System.currentTimeMillis(), 0);
+            mHandler.postDelayed(mUploadPendingFilesRunnable, delay);
+        }
+    }
+
+    private static void removePostsWithPlaceholders(@NonNull List<Post> posts,
+                                                    @NonNull List<String> placeholderUrls) {
+        for (Iterator<Post> iterator = posts.iterator(); iterator.hasNext(); ) {
+            Post post = iterator.next();
+            for (String placeholderUrl : placeholderUrls) {
+                if (placeholderUrl.equals(post.getImage()) || (post.getMarkdown() != null
+                        && post.getMarkdown().contains(placeholderUrl))) {
+                    Crashlytics.log(Log.DEBUG, TAG, "[onSyncPostsEvent] post with uuid = "
+                            + post.getUuid() + " is waiting for an image upload");
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    // must be called inside a transaction on the Realm that the post belongs to
+    private static void replaceUploadPlaceholder(@NonNull Post post, @NonNull String placeholderUrl,
+                                                 @NonNull String url) {
+        String markdown = post.getMarkdown();
+        if (markdown != null && markdown.contains(placeholderUrl)) {
+            post.setMarkdown(markdown.replace(placeholderUrl, url));
+        }
+        if (placeholderUrl.equals(post.getImage())) {
+            post.setImage(url);
+        }
+    }
+
+    private static void removeUploadPlaceholder(@NonNull Post post, @NonNull String placeholderUrl) {
+        String markdown = post.getMarkdown();
+        if (markdown != null && markdown.contains(placeholderUrl)) {
+            markdown = PostUtils.makeImageMarkdownPattern(placeholderUrl).matcher(markdown)
+                    .replaceAll("");
+            // any other reference to it, e.g., in a link
+            post.setMarkdown(markdown.replace(placeholderUrl, ""));
+        }
+        if (placeholderUrl.equals(post.getImage())) {
+            post.setImage(null);
+        }
+    }
+
+    // must be called inside a transaction on the Realm that the post belongs to
+    private static void removeAbandonedUploadPlaceholders(@NonNull Realm realm, @NonNull Post post) {
+        String outboxUrl = Uri.fromFile(ImageUtils.getUploadOutboxDir(
+                SpectreApplication.getInstance())).toString();
+        Set<String> placeholderUrls = new HashSet<>();
+        if (post.getImage() != null && post.getImage().startsWith(outboxUrl)) {
+            placeholderUrls.add(post.getImage());
+        }
+        String markdown = post.getMarkdown();
+        int start = (markdown != null) ? markdown.indexOf(outboxUrl) : -1;
+        while (start >= 0) {
+            int end = start + outboxUrl.length();
+            while (end < markdown.length() && ") \"\n\t".indexOf(markdown.charAt(end)) < 0) {
+                ++end;
+            }
+            placeholderUrls.add(markdown.substring(start, end));
+            start = markdown.indexOf(outboxUrl, end);
+        }
+        for (String placeholderUrl : placeholderUrls) {
+            boolean isInOutbox = realm.where(PendingUpload.class)
+                    .equalTo("placeholderUrl", placeholderUrl)
+                    .count() > 0;
+            if (! isInOutbox) {
+                Crashlytics.log(Log.WARN, TAG, "[removeAbandonedUploadPlaceholders] removing "
+                        + "image that was never uploaded from post with uuid = " + post.getUuid());
+                removeUploadPlaceholder(post, placeholderUrl);
+            }
+        }
+    }
+
+    // must be called inside a transaction, because the outbox must not change in the meantime
+    private static void deleteOrphanedOutboxFiles(@NonNull Realm realm, long minAge) {
+        File[] files = ImageUtils.getUploadOutboxDir(SpectreApplication.getInstance()).listFiles();
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - minAge;
+        for (File file : files) {
+            boolean isQueued = realm.where(PendingUpload.class)
+                    .equalTo("filePath", file.getAbsolutePath())
+                    .isNull("remoteUrl")
+                    .count() > 0;
+            if (! isQueued && file.lastModified() <= cutoff) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
     private void clearSavedPassword() {
         UserPrefs prefs = UserPrefs.getInstance(SpectreApplication.getInstance());
         prefs.clear(UserPrefs.Key.PASSWORD);
@@ -1174,6 +1911,38 @@ public class NetworkService {
         }
     }
 
+    /**
+     * Like {@link GhostApiUtils#doWithClientSecret}, but reuses the cached client secret of the
+     * given blog if it's not older than {@link #CLIENT_SECRET_TTL}.
+     * @param callback called with the client secret, and whether it came from the cache
+     */
+    private void doWithClientSecret(@NonNull GhostApiService api, @NonNull String blogUrl,
+                                    @NonNull Action2<String, Boolean> callback) {
+        AppState appState = getAppState();
+        String cachedClientSecret = appState.getString(AppState.Key.CLIENT_SECRET);
+        long age = System.currentTimeMillis() - appState.getLong(AppState.Key.CLIENT_SECRET_FETCHED_AT);
+        if (blogUrl.equals(appState.getString(AppState.Key.CLIENT_SECRET_BLOG_URL))
+                && ! cachedClientSecret.isEmpty() && age >= 0 && age < CLIENT_SECRET_TTL) {
+            callback.call(cachedClientSecret, true);
+            return;
+        }
+        GhostApiUtils.doWithClientSecret(api, blogUrl, clientSecret -> {
+            // older Ghost versions don't have a client secret, nothing to cache in that case
+            if (clientSecret != null) {
+                appState.setString(AppState.Key.CLIENT_SECRET, clientSecret);
+                appState.setString(AppState.Key.CLIENT_SECRET_BLOG_URL, blogUrl);
+                appState.setLong(AppState.Key.CLIENT_SECRET_FETCHED_AT, System.currentTimeMillis());
+            }
+            callback.call(clientSecret, false);
+        });
+    }
+
+    private void clearCachedClientSecret() {
+        getAppState().clear(AppState.Key.CLIENT_SECRET);
+        getAppState().clear(AppState.Key.CLIENT_SECRET_BLOG_URL);
+        getAppState().clear(AppState.Key.CLIENT_SECRET_FETCHED_AT);
+    }
+
     private void postLoginStartEvent() {
         UserPrefs prefs = UserPrefs.getInstance(SpectreApplication.getInstance());
         String blogUrl = prefs.getString(UserPrefs.Key.BLOG_URL);
@@ -1185,9 +1954,12 @@ public class NetworkService {
     private void onNewAuthToken(AuthToken authToken) {
         Log.d(TAG, "Got new access token = " + authToken.getAccessToken());
         authToken.setCreatedAt(DateTimeUtils.getEpochSeconds());
-        mAuthToken = createOrUpdateModel(authToken);
+        // keep an unmanaged copy, so it's usable right away, before the write is committed
+        mAuthToken = authToken;
+        mWriteQueue.enqueue(realm -> realm.insertOrUpdate(authToken));
         AppState.getInstance(SpectreApplication.getInstance())
                 .setBoolean(AppState.Key.LOGGED_IN, true);
+        scheduleAccessTokenRefresh();
         flushApiEventQueue(false);
     }
 
@@ -1225,19 +1997,217 @@ public class NetworkService {
         return apiErrors;
     }
 
-    private List<Post> getPostsSorted() {
-        // FIXME time complexity O(n) for copying + O(n log n) for sorting!
-        RealmResults<Post> realmPosts = mRealm.where(Post.class).findAll();
-        List<Post> unmanagedPosts = copyPosts(realmPosts);
-        Collections.sort(unmanagedPosts, PostUtils.COMPARATOR_MAIN_LIST);
-        return unmanagedPosts;
+    private List<PostSummary> getPostsSorted() {
+        // sorted by Realm on the indexed sort key, see Post.computeSortKey()
+        RealmResults<Post> posts = mRealm.where(Post.class).findAllSorted("sortKey", Sort.DESCENDING);
+        List<PostSummary> summaries = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            summaries.add(new PostSummary(post));
+        }
+        return summaries;
+    }
+
+    /**
+     * Deletes local posts that are no longer present on the server. Must be called inside a
+     * transaction.
+     * @param serverPostUuids the uuids of ALL posts on the server (that this user can access)
+     */
+    private static void deletePostsNotOnServer(@NonNull Realm realm,
+                                               @NonNull Set<String> serverPostUuids) {
+        List<Post> deletedPosts = PostReconciler.findDeletedPosts(serverPostUuids,
+                realm.where(Post.class).findAll());
+        for (Post deletedPost : deletedPosts) {
+            RealmObject.deleteFromRealm(deletedPost);
+        }
+    }
+
+    /**
+     * @return the earliest updatedAt (in ms since the epoch) among the posts in the manifest that
+     * are missing locally or older locally, or Long.MAX_VALUE if there are none. Must be called
+     * inside a transaction.
+     */
+    private static long findEarliestMissedUpdatedAt(@NonNull Realm realm,
+                                                    @NonNull List<PostManifest.Entry> entries,
+                                                    @NonNull Set<String> serverPostUuids) {
+        Map<String, Date> localUpdatedAtByUuid = new HashMap<>();
+        for (Post post : realm.where(Post.class).findAll()) {
+            localUpdatedAtByUuid.put(post.getUuid(), post.getUpdatedAt());
+        }
+        long earliest = Long.MAX_VALUE;
+        for (PostManifest.Entry entry : entries) {
+            if (entry.updatedAt == null || ! serverPostUuids.contains(entry.uuid)) {
+                continue;
+            }
+            Date localUpdatedAt = localUpdatedAtByUuid.get(entry.uuid);
+            boolean missed = ! localUpdatedAtByUuid.containsKey(entry.uuid)
+                    || (localUpdatedAt != null && entry.updatedAt.after(localUpdatedAt));
+            if (missed) {
+                earliest = Math.min(earliest, entry.updatedAt.getTime());
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Fetch the cover images of all posts and the user's avatar ahead of time, so the post list
+     * isn't full of blanks when it's next opened offline. Only done on unmetered networks, since it
+     * may download a lot of images the user never scrolls to.
+     *
+     * Images that must stay available offline are pinned, i.e., copied into the
+     * {@link PinnedImageStore} where the image cache can't evict them, even on metered networks;
+     * those that no longer need to be are released here too.
+     */
+    private void prefetchImages() {
+        if (mImageHttpClient == null || mBlogUrl == null) {
+            return;
+        }
+        boolean isMetered = ! NetworkUtils.isConnectedToUnmeteredNetwork(
+                SpectreApplication.getInstance());
+        List<String> imageUrls = new ArrayList<>();
+        // images of posts with unsynced changes are likely to be needed offline soon, and the
+        // avatar is shown all the time, so these are pinned; there are few of them, so the pinned
+        // image store stays small
+        List<String> pinnedImageUrls = new ArrayList<>();
+        // in list order, so the images near the top are cached first
+        RealmResults<Post> posts = mRealm.where(Post.class).findAllSorted("sortKey", Sort.DESCENDING);
+        for (Post post : posts) {
+            String imageUrl = getPrefetchableImageUrl(post.getImage());
+            if (imageUrl == null) {
+                continue;
+            }
+            if (post.isPendingActionsEmpty()) {
+                imageUrls.add(imageUrl);
+            } else {
+                pinnedImageUrls.add(imageUrl);
+            }
+        }
+        User user = mRealm.where(User.class).findFirst();
+        if (user != null) {
+            String avatarUrl = getPrefetchableImageUrl(user.getImage());
+            if (avatarUrl != null) {
+                pinnedImageUrls.add(avatarUrl);
+            }
+        }
+        if (isMetered) {
+            Crashlytics.log(Log.DEBUG, TAG, "[prefetchImages] network is metered, only "
+                    + "prefetching pinned images");
+            imageUrls.clear();
+        }
+        Crashlytics.log(Log.DEBUG, TAG, "[prefetchImages] prefetching "
+                + (imageUrls.size() + pinnedImageUrls.size()) + " images, "
+                + pinnedImageUrls.size() + " of them pinned");
+        // release pinned images of posts that have been synced since
+        Schedulers.io().scheduleDirect(() -> mPinnedImageStore.retainOnly(pinnedImageUrls));
+        mImagePrefetcher.prefetch(imageUrls, pinnedImageUrls);
+    }
+
+    /**
+     * @return the absolute URL of the given image on the server, or null if there is none (e.g.,
+     * if it's a local copy waiting in the upload outbox)
+     */
+    @Nullable
+    private String getPrefetchableImageUrl(@Nullable String image) {
+        if (image == null || image.isEmpty()) {
+            return null;
+        }
+        String url = NetworkUtils.makeAbsoluteUrl(mBlogUrl, image);
+        return (HttpUrl.parse(url) != null) ? url : null;
+    }
+
+    private void prefetchImage(@NonNull String url, boolean pinned, @NonNull Runnable onDone) {
+        SpectreApplication app = SpectreApplication.getInstance();
+        boolean canFetch = pinned
+                ? NetworkUtils.isConnected(app)
+                : NetworkUtils.isConnectedToUnmeteredNetwork(app);
+        if (! canFetch) {
+            // lost connectivity (or switched to a metered network) since the prefetch started
+            mImagePrefetcher.cancel();
+            mHandler.post(onDone);
+            return;
+        }
+        // the image cache stores the full image as served, Picasso scales it down to the size of
+        // the card when it's decoded, so there's no need to decode it here
+        Request request = new Request.Builder().url(url).build();
+        mImageHttpClient.newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                try {
+                    // if the image is stored already, the response came from the store itself
+                    if (pinned && response.isSuccessful() && mPinnedImageStore.get(url) == null) {
+                        // this also writes the response to the image cache, as below
+                        mPinnedImageStore.put(url, response.body().byteStream());
+                        return;
+                    }
+                    // the response is written to the cache only once it's read to the end
+                    BufferedSource source = response.body().source();
+                    Buffer buffer = new Buffer();
+                    while (source.read(buffer, PREFETCH_READ_BUFFER_SIZE) != -1) {
+                        buffer.clear();
+                    }
+                } catch (IOException e) {
+                    Crashlytics.log(Log.WARN, TAG, "[prefetchImage] failed to read " + url
+                            + ": " + e.getMessage());
+                } finally {
+                    response.close();
+                    mHandler.post(onDone);
+                }
+            }
+
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                Crashlytics.log(Log.WARN, TAG, "[prefetchImage] failed to fetch " + url
+                        + ": " + e.getMessage());
+                mHandler.post(onDone);
+            }
+        });
+    }
+
+    // must only be called once all posts received in this sync have been committed
+    private void onPostsSyncCompleted(@NonNull PostsSyncState syncState) {
+        getAppState().clear(AppState.Key.POSTS_SYNC_NEXT_PAGE);
+        if (syncState.latestUpdatedAt != null) {
+            getAppState().setLong(AppState.Key.POSTS_SYNC_WATERMARK,
+                    syncState.latestUpdatedAt.getTime());
+        }
+    }
+
+    /**
+     * @return the id of the current user if they only have the Author role, in which case they're
+     * only authorized to access their own posts, else null
+     */
+    @Nullable
+    private Integer getAuthorOnlyUserId() {
+        RealmResults<User> users = mRealm.where(User.class).findAll();
+        if (users.size() > 0 && users.first().hasOnlyAuthorRole()) {
+            return users.first().getId();
+        }
+        return null;
+    }
+
+    // forces the next posts sync to download ALL posts from scratch
+    private void resetPostsSyncState() {
+        getAppState().clear(AppState.Key.POSTS_SYNC_NEXT_PAGE);
+        getAppState().clear(AppState.Key.POSTS_SYNC_WATERMARK);
     }
 
-    private void storeEtag(Headers headers, @ETag.Type String etagType) {
+    /**
+     * Bulk-saves models received from the server, along with the response's ETag, if any. Unlike
+     * {@link Realm#copyToRealmOrUpdate(Iterable)}, this doesn't create (and return) a managed copy
+     * of every object. Must be called inside a transaction.
+     */
+    private static void saveServerModels(@NonNull Realm realm, Headers headers,
+                                         @ETag.Type String etagType,
+                                         @NonNull Collection<? extends RealmModel> models) {
+        storeEtag(realm, headers, etagType);
+        realm.insertOrUpdate(models);
+    }
+
+    // must be called inside a transaction
+    private static void storeEtag(@NonNull Realm realm, Headers headers, @ETag.Type String etagType) {
         for (String name : headers.names()) {
             if ("ETag".equals(name) && !headers.values(name).isEmpty()) {
                 ETag etag = new ETag(etagType, headers.values(name).get(0));
-                createOrUpdateModel(etag);
+                realm.insertOrUpdate(etag);
             }
         }
     }
@@ -1247,27 +2217,29 @@ public class NetworkService {
         return (etag != null) ? etag.getTag() : "";
     }
 
-    private void removeEtag(@ETag.Type String etagType) {
-        RealmResults<ETag> etags = mRealm.where(ETag.class).equalTo("type", etagType).findAll();
-        if (etags.size() > 0) {
-            deleteModel(etags.first());
-        }
-    }
-
     /**
      * Generates a temporary primary key until the actual id is generated by the server. <b>Be
      * careful when calling this in a loop, if you don't save the object before calling it again,
      * you'll get the same id twice!</b>
      */
     @NonNull
-    private <T extends RealmModel> String getTempUniqueId(Class<T> clazz) {
+    private static <T extends RealmModel> String getTempUniqueId(@NonNull Realm realm,
+                                                                 Class<T> clazz) {
         int tempId = Integer.MAX_VALUE;
-        while (mRealm.where(clazz).equalTo("uuid", String.valueOf(tempId)).findAll().size() > 0) {
+        while (realm.where(clazz).equalTo("uuid", String.valueOf(tempId)).findAll().size() > 0) {
             --tempId;
         }
         return String.valueOf(tempId);
     }
 
+    // must be called on full posts (not summaries) received from the server before saving them
+    private static void prepareFullServerPosts(@NonNull List<Post> posts) {
+        for (Post post : posts) {
+            post.updateSortKey();
+            post.setContentLoaded(true);
+        }
+    }
+
     private List<Post> copyPosts(List<Post> posts) {
         List<Post> copied = new ArrayList<>(posts.size());
         for (Post model : posts) {
@@ -1276,78 +2248,42 @@ public class NetworkService {
         return copied;
     }
 
-    private <T extends RealmModel> T createOrUpdateModel(T object) {
-        return createOrUpdateModel(object, null);
-    }
-
-    private <T extends RealmModel> T createOrUpdateModel(T object,
-                                                         @Nullable Runnable afterTransaction) {
-        return executeRealmTransaction(mRealm, realm -> {
-            T realmObject = mRealm.copyToRealmOrUpdate(object);
-            if (afterTransaction != null) {
-                afterTransaction.run();
-            }
-            return realmObject;
-        });
-    }
-
-    private <T extends RealmModel> List<T> createOrUpdateModel(Iterable<T> objects) {
-        return createOrUpdateModel(objects, null);
-    }
-
-    private <T extends RealmModel> List<T> createOrUpdateModel(Iterable<T> objects,
-                                                               @Nullable Runnable afterTransaction) {
-        if (! objects.iterator().hasNext()) {
-            return Collections.emptyList();
+    // book-keeping for a single (possibly resumed) paged posts sync
+    private static final class PostsSyncState {
+        // value of mPostsSyncGeneration when this sync started
+        final int generation;
+        // null for a full sync
+        @Nullable final Date updatedSince;
+        // the next watermark: the latest updatedAt among the posts received in this sync
+        @Nullable Date latestUpdatedAt;
+
+        PostsSyncState(int generation, @Nullable Date updatedSince) {
+            this.generation = generation;
+            this.updatedSince = updatedSince;
+            this.latestUpdatedAt = updatedSince;
         }
-        return executeRealmTransaction(mRealm, realm -> {
-            List<T> realmObjects = mRealm.copyToRealmOrUpdate(objects);
-            if (afterTransaction != null) {
-                afterTransaction.run();
-            }
-            return realmObjects;
-        });
-    }
-
-    private <T extends RealmModel> void deleteModel(T realmObject) {
-        executeRealmTransaction(mRealm, realm -> {
-            RealmObject.deleteFromRealm(realmObject);
-            return null;
-        });
-    }
 
-    private <T extends RealmModel> void deleteModels(Iterable<T> realmObjects) {
-        if (! realmObjects.iterator().hasNext()) {
-            return;
-        }
-        executeRealmTransaction(mRealm, realm -> {
-            for (T realmObject : realmObjects) {
-                RealmObject.deleteFromRealm(realmObject);
+        void onPostsReceived(@NonNull List<Post> posts) {
+            for (Post post : posts) {
+                Date updatedAt = post.getUpdatedAt();
+                if (updatedAt != null && (latestUpdatedAt == null || updatedAt.after(latestUpdatedAt))) {
+                    latestUpdatedAt = updatedAt;
+                }
             }
-            return null;
-        });
+        }
     }
 
-    private static <T> T executeRealmTransaction(@NonNull Realm realm,
-                                                 @NonNull RealmTransactionWithReturn<T> transaction) {
-        T retValue;
-        realm.beginTransaction();
-        try {
-            retValue = transaction.execute(realm);
-            realm.commitTransaction();
-        } catch (Throwable e) {
-            if (realm.isInTransaction()) {
-                realm.cancelTransaction();
-            } else {
-                Log.w(TAG, "Could not cancel transaction, not currently in a transaction.");
-            }
-            throw e;
-        }
-        return retValue;
+    /**
+     * @return true if the user logged out after the given sync started, in which case everything
+     * it received must be dropped: it belongs to the old blog, and the Realm it was meant for is
+     * gone
+     */
+    private boolean isStale(@NonNull PostsSyncState syncState) {
+        return syncState.generation != mPostsSyncGeneration;
     }
 
-    private interface RealmTransactionWithReturn<T> {
-        T execute(@NonNull Realm realm);
+    private AppState getAppState() {
+        return AppState.getInstance(SpectreApplication.getInstance());
     }
 
     private Bus getBus() {
@@ -0,0 +1,58 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * Serves GET requests for images in the {@link PinnedImageStore} from the stored copy, without
+ * going to the image cache or the network. Pinned images are never changed in place on the server
+ * (a new upload gets a new URL), so the copy is never out of date.
+ */
+final class PinnedImageInterceptor implements Interceptor {
+
+    private final PinnedImageStore mStore;
+
+    PinnedImageInterceptor(@NonNull PinnedImageStore store) {
+        mStore = store;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        File file = "GET".equals(request.method())
+                ? mStore.get(request.url().toString())
+                : null;
+        if (file == null) {
+            return chain.proceed(request);
+        }
+        BufferedSource source;
+        try {
+            source = Okio.buffer(Okio.source(file));
+        } catch (FileNotFoundException e) {
+            // released since the lookup above
+            return chain.proceed(request);
+        }
+        // the content type isn't stored, Picasso detects the format from the image data anyway
+        ResponseBody body = ResponseBody.create(null, file.length(), source);
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(HttpURLConnection.HTTP_OK)
+                .message("OK")
+                .body(body)
+                .build();
+    }
+
+}
@@ -0,0 +1,138 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Copies of images that must stay available offline, e.g., cover images of posts with unsynced
+ * changes. Unlike the image cache, nothing is ever evicted from here: an image stays until it's
+ * released by {@link #retainOnly} or {@link #clear}, so the store must be kept small by its users.
+ *
+ * Images are served from here by {@link PinnedImageInterceptor}. Methods may be called from any
+ * thread, but they touch the disk, so not from the main thread.
+ */
+public final class PinnedImageStore {
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
+    private final File mDir;
+
+    /**
+     * @param dir - directory for the images, created when the first image is stored; it must not
+     *            be used for anything else
+     */
+    public PinnedImageStore(@NonNull File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @return the stored copy of the image at the given URL, or null if there is none
+     */
+    @Nullable
+    public File get(@NonNull String url) {
+        File file = getFile(url);
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Store the image at the given URL, replacing any previous copy. The copy becomes visible only
+     * once it's complete, so a failed or concurrent read never sees a partial image.
+     */
+    public void put(@NonNull String url, @NonNull InputStream image) throws IOException {
+        if (! mDir.exists() && ! mDir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + mDir);
+        }
+        File file = getFile(url);
+        File tempFile = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, mDir);
+        boolean success = false;
+        try {
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int count;
+                while ((count = image.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                out.close();
+            }
+            if (! tempFile.renameTo(file)) {
+                throw new IOException("Failed to rename " + tempFile + " to " + file);
+            }
+            success = true;
+        } finally {
+            if (! success) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Release all stored images except those at the given URLs. Images being stored concurrently
+     * are left alone.
+     */
+    public void retainOnly(@NonNull Collection<String> urls) {
+        Set<String> namesToKeep = new HashSet<>();
+        for (String url : urls) {
+            namesToKeep.add(getFile(url).getName());
+        }
+        deleteFiles(namesToKeep, false);
+    }
+
+    /**
+     * Release all stored images, including partial copies left behind if the app was killed while
+     * storing an image.
+     */
+    public void clear() {
+        deleteFiles(new HashSet<>(), true);
+    }
+
+    private void deleteFiles(@NonNull Set<String> namesToKeep, boolean deleteTempFiles) {
+        File[] files = mDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (namesToKeep.contains(name)
+                    || (! deleteTempFiles && name.endsWith(TEMP_FILE_SUFFIX))) {
+                continue;
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    private File getFile(@NonNull String url) {
+        return new File(mDir, sha1Hex(url));
+    }
+
+    private static String sha1Hex(@NonNull String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8"));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            // SHA-1 and UTF-8 are guaranteed to be available on all Java platforms
+            throw new AssertionError(e);
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import me.vickychijwani.spectre.model.entity.PendingAction;
+import me.vickychijwani.spectre.model.entity.Post;
+
+/**
+ * Merges posts received from the server with the local copies. Both sides are indexed by uuid, so
+ * this is linear in the number of posts, instead of comparing every pair of posts.
+ */
+final class PostReconciler {
+
+    private PostReconciler() {}
+
+    static final class Result {
+        // server posts that don't exist locally yet
+        final List<Post> created = new ArrayList<>();
+        // server posts that exist locally and can be overwritten
+        final List<Post> updated = new ArrayList<>();
+        // server posts whose local copy has edits that have not been uploaded yet
+        final List<Post> skipped = new ArrayList<>();
+
+        List<Post> getPostsToSave() {
+            List<Post> postsToSave = new ArrayList<>(created.size() + updated.size());
+            postsToSave.addAll(created);
+            postsToSave.addAll(updated);
+            return postsToSave;
+        }
+    }
+
+    /**
+     * Classifies each server post as created, updated or skipped in a single pass.
+     * @param serverPosts posts received from the server (not necessarily ALL of them)
+     * @param localPosts posts stored locally; only those with the same uuids as serverPosts are
+     *                   needed, others are ignored
+     */
+    @NonNull
+    static Result reconcile(@NonNull List<Post> serverPosts, @NonNull Collection<Post> localPosts) {
+        Map<String, Post> localPostsByUuid = indexByUuid(localPosts);
+        Result result = new Result();
+        for (Post serverPost : serverPosts) {
+            Post localPost = localPostsByUuid.get(serverPost.getUuid());
+            if (localPost == null) {
+                result.created.add(serverPost);
+            } else if (localPost.hasPendingAction(PendingAction.EDIT)
+                    || localPost.hasPendingAction(PendingAction.EDIT_LOCAL)) {
+                result.skipped.add(serverPost);
+            } else {
+                result.updated.add(serverPost);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param serverPostUuids the uuids of ALL posts on the server
+     * @param localPosts ALL posts stored locally
+     * @return local posts that have been deleted on the server
+     */
+    @NonNull
+    static List<Post> findDeletedPosts(@NonNull Set<String> serverPostUuids,
+                                       @NonNull Collection<Post> localPosts) {
+        List<Post> deletedPosts = new ArrayList<>();
+        for (Post localPost : localPosts) {
+            // posts yet to be created on the server can't be there obviously
+            if (localPost.hasPendingAction(PendingAction.CREATE)) continue;
+            if (! serverPostUuids.contains(localPost.getUuid())) {
+                deletedPosts.add(localPost);
+            }
+        }
+        return deletedPosts;
+    }
+
+    private static Map<String, Post> indexByUuid(@NonNull Collection<Post> posts) {
+        // size the map up-front to avoid rehashing on large blogs
+        Map<String, Post> postsByUuid = new HashMap<>((int) (posts.size() / 0.75f) + 1);
+        for (Post post : posts) {
+            postsByUuid.put(post.getUuid(), post);
+        }
+        return postsByUuid;
+    }
+
+}
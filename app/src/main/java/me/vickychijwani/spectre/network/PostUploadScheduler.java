@@ -0,0 +1,145 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs post upload operations (each of which may make one or more network calls) with a limit on
+ * how many are in flight at once, so that a large number of pending changes doesn't flood the
+ * server with simultaneous requests.
+ *
+ * - operations on the same post run one at a time, in the order they were scheduled
+ * - posts with a user-initiated operation are served before posts with only background operations
+ *
+ * All methods must be called on the same thread (the main thread).
+ */
+final class PostUploadScheduler {
+
+    interface Operation {
+        /**
+         * @param onDone must be called exactly once, when the operation has finished (successfully
+         *               or not)
+         */
+        void run(@NonNull Runnable onDone);
+    }
+
+    private final int mMaxInFlight;
+    // pending operations, keyed by post uuid, in the order the posts were first scheduled
+    private final Map<String, PendingOperations> mPendingOpsByPost = new LinkedHashMap<>();
+    private final Set<String> mInFlightPostUuids = new HashSet<>();
+    private final List<Runnable> mIdleCallbacks = new ArrayList<>();
+
+    PostUploadScheduler(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1, got " + maxInFlight);
+        }
+        mMaxInFlight = maxInFlight;
+    }
+
+    void schedule(@NonNull String postUuid, boolean userInitiated, @NonNull Operation operation) {
+        PendingOperations pendingOps = mPendingOpsByPost.get(postUuid);
+        if (pendingOps == null) {
+            pendingOps = new PendingOperations();
+            mPendingOpsByPost.put(postUuid, pendingOps);
+        }
+        pendingOps.operations.addLast(operation);
+        pendingOps.userInitiated |= userInitiated;
+        dispatch();
+    }
+
+    boolean isIdle() {
+        return mPendingOpsByPost.isEmpty() && mInFlightPostUuids.isEmpty();
+    }
+
+    /**
+     * Runs the callback once all operations scheduled so far have finished; immediately if there
+     * are none.
+     */
+    void runWhenIdle(@NonNull Runnable callback) {
+        if (isIdle()) {
+            callback.run();
+        } else {
+            mIdleCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Drops all operations that have not started yet, and all idle callbacks. Operations already
+     * in flight will still run to completion.
+     */
+    void clear() {
+        mPendingOpsByPost.clear();
+        mIdleCallbacks.clear();
+    }
+
+    private void dispatch() {
+        while (mInFlightPostUuids.size() < mMaxInFlight) {
+            String postUuid = pickNextPost();
+            if (postUuid == null) {
+                break;
+            }
+            PendingOperations pendingOps = mPendingOpsByPost.get(postUuid);
+            Operation operation = pendingOps.operations.removeFirst();
+            if (pendingOps.operations.isEmpty()) {
+                mPendingOpsByPost.remove(postUuid);
+            }
+            mInFlightPostUuids.add(postUuid);
+            operation.run(new OnDone(postUuid));
+        }
+        if (isIdle()) {
+            List<Runnable> idleCallbacks = new ArrayList<>(mIdleCallbacks);
+            mIdleCallbacks.clear();
+            for (Runnable callback : idleCallbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    // the first user-initiated post that isn't in flight, else the first background one
+    private String pickNextPost() {
+        String firstBackgroundPost = null;
+        for (Map.Entry<String, PendingOperations> entry : mPendingOpsByPost.entrySet()) {
+            String postUuid = entry.getKey();
+            if (mInFlightPostUuids.contains(postUuid)) continue;
+            if (entry.getValue().userInitiated) {
+                return postUuid;
+            }
+            if (firstBackgroundPost == null) {
+                firstBackgroundPost = postUuid;
+            }
+        }
+        return firstBackgroundPost;
+    }
+
+    private static final class PendingOperations {
+        final ArrayDeque<Operation> operations = new ArrayDeque<>();
+        boolean userInitiated = false;
+    }
+
+    private final class OnDone implements Runnable {
+        private final String mPostUuid;
+        private boolean mbDone = false;
+
+        OnDone(@NonNull String postUuid) {
+            mPostUuid = postUuid;
+        }
+
+        @Override
+        public void run() {
+            if (mbDone) {
+                throw new IllegalStateException("onDone called twice for post uuid = " + mPostUuid);
+            }
+            mbDone = true;
+            mInFlightPostUuids.remove(mPostUuid);
+            dispatch();
+        }
+    }
+
+}
@@ -1,35 +1,67 @@
 package me.vickychijwani.spectre.network;
 
+import android.content.Context;
 import android.os.Build;
 import android.os.StatFs;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.File;
 import java.util.concurrent.TimeUnit;
 
+import me.vickychijwani.spectre.util.NetworkUtils;
 import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 
 public class ProductionHttpClientFactory implements HttpClientFactory {
 
-    private static final int MIN_DISK_CACHE_SIZE = 5 * 1024 * 1024;     // in bytes
-    private static final int MAX_DISK_CACHE_SIZE = 50 * 1024 * 1024;    // in bytes
+    // API responses are small, but worth keeping around for their ETags
+    private static final int MIN_API_CACHE_SIZE = 2 * 1024 * 1024;          // in bytes
+    private static final int MAX_API_CACHE_SIZE = 10 * 1024 * 1024;         // in bytes
+    private static final int API_CACHE_DISK_FRACTION = 200;                 // 0.5% of the disk
+
+    private static final int MIN_IMAGE_CACHE_SIZE = 5 * 1024 * 1024;        // in bytes
+    private static final int MAX_IMAGE_CACHE_SIZE = 50 * 1024 * 1024;       // in bytes
+    private static final int IMAGE_CACHE_DISK_FRACTION = 50;                // 2% of the disk
 
     private static final int CONNECT_TIMEOUT = 20;
     private static final int READ_TIMEOUT = 30;
     private static final int WRITE_TIMEOUT = 5 * 60;    // for file uploads
 
+    @Nullable private final Context mContext;
+
     /**
-     * @param cacheDir - directory for the HTTP cache, disabled if null
+     * Create a factory for clients that always try the network, whether or not there is a
+     * connection.
+     */
+    public ProductionHttpClientFactory() {
+        this(null);
+    }
+
+    /**
+     * @param context - used to check for network connectivity before each request, so that
+     *                requests fail fast or are served from the cache when offline
+     */
+    public ProductionHttpClientFactory(@Nullable Context context) {
+        mContext = (context != null) ? context.getApplicationContext() : null;
+    }
+
+    /**
+     * @param cacheDir - directory for the cache of API responses, disabled if null
      * @return an HTTP client intended for production use
      */
     @Override
     public OkHttpClient create(@Nullable File cacheDir) {
         OkHttpClient.Builder builder = new OkHttpClient.Builder();
         if (cacheDir != null) {
-            long size = calculateDiskCacheSize(cacheDir);
+            long size = calculateDiskCacheSize(cacheDir, API_CACHE_DISK_FRACTION,
+                    MIN_API_CACHE_SIZE, MAX_API_CACHE_SIZE);
             builder.cache(new Cache(cacheDir, size));
         }
+        if (mContext != null) {
+            builder.addInterceptor(new ConnectivityInterceptor(() ->
+                    NetworkUtils.isConnected(mContext)));
+        }
         return builder
                 .connectTimeout(CONNECT_TIMEOUT, TimeUnit.SECONDS)
                 .readTimeout(READ_TIMEOUT, TimeUnit.SECONDS)
@@ -37,8 +69,26 @@ public class ProductionHttpClientFactory implements HttpClientFactory {
                 .build();
     }
 
-    private static long calculateDiskCacheSize(File dir) {
-        long size = MIN_DISK_CACHE_SIZE;
+    @Override
+    public OkHttpClient createImageClient(@NonNull OkHttpClient apiClient, @Nullable File cacheDir,
+                                          @Nullable PinnedImageStore pinnedImages) {
+        Cache cache = null;
+        if (cacheDir != null) {
+            long size = calculateDiskCacheSize(cacheDir, IMAGE_CACHE_DISK_FRACTION,
+                    MIN_IMAGE_CACHE_SIZE, MAX_IMAGE_CACHE_SIZE);
+            cache = new Cache(cacheDir, size);
+        }
+        OkHttpClient.Builder builder = apiClient.newBuilder()
+                .cache(cache);
+        if (pinnedImages != null) {
+            builder.addInterceptor(new PinnedImageInterceptor(pinnedImages));
+        }
+        return builder.build();
+    }
+
+    private static long calculateDiskCacheSize(File dir, int diskFraction, long minSize,
+                                               long maxSize) {
+        long size = minSize;
         try {
             StatFs statFs = new StatFs(dir.getAbsolutePath());
             long available;
@@ -49,12 +99,12 @@ public class ProductionHttpClientFactory implements HttpClientFactory {
                 //noinspection deprecation
                 available = statFs.getBlockCount() * statFs.getBlockSize();
             }
-            // Target 2% of the total space.
-            size = available / 50;
+            // Target 1/diskFraction of the total space.
+            size = available / diskFraction;
         } catch (IllegalArgumentException ignored) {
         }
         // Bound inside min/max size for disk cache.
-        return Math.max(Math.min(size, MAX_DISK_CACHE_SIZE), MIN_DISK_CACHE_SIZE);
+        return Math.max(Math.min(size, maxSize), minSize);
     }
 
 }
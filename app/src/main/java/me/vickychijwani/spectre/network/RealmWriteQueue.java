@@ -0,0 +1,118 @@
+package me.vickychijwani.spectre.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.crashlytics.android.Crashlytics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.realm.Realm;
+
+/**
+ * Runs Realm write transactions on a background thread (with its own Realm instance), one at a
+ * time, in the order they were submitted. The completion callback for each write runs on the
+ * thread that owns the given Realm (must be a Looper thread, e.g., the main thread), and only
+ * after that Realm can see the committed changes.
+ *
+ * NOTE: transactions run on a different thread, so they must NOT capture managed objects from the
+ * calling thread's Realm - capture unmanaged copies or primary keys, and query them again inside
+ * the transaction.
+ */
+final class RealmWriteQueue {
+
+    private static final String TAG = RealmWriteQueue.class.getSimpleName();
+
+    private final Realm mRealm;
+    private final ArrayDeque<PendingWrite> mPendingWrites = new ArrayDeque<>();
+    private final List<Runnable> mIdleCallbacks = new ArrayList<>();
+    private boolean mbWriteInProgress = false;
+    @Nullable private PendingWrite mWriteInProgress = null;
+
+    RealmWriteQueue(@NonNull Realm realm) {
+        mRealm = realm;
+    }
+
+    void enqueue(@NonNull Realm.Transaction transaction) {
+        enqueue(transaction, null);
+    }
+
+    /**
+     * @param onCommitted called after the transaction is committed, once the caller's Realm is
+     *                    up-to-date with it
+     */
+    void enqueue(@NonNull Realm.Transaction transaction, @Nullable Runnable onCommitted) {
+        mPendingWrites.addLast(new PendingWrite(transaction, onCommitted));
+        if (! mbWriteInProgress) {
+            runNext();
+        }
+    }
+
+    /**
+     * Runs the callback once all writes submitted so far have finished; immediately if there are
+     * none.
+     */
+    void runWhenIdle(@NonNull Runnable callback) {
+        if (! mbWriteInProgress) {
+            callback.run();
+        } else {
+            mIdleCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Drops all writes that have not started yet. A write that is already in progress will still
+     * be committed, but its completion callback won't be called, since the state it was meant to
+     * update is gone (e.g., after logout). Idle callbacks are still called.
+     */
+    void clear() {
+        mPendingWrites.clear();
+        if (mWriteInProgress != null) {
+            mWriteInProgress.cancelled = true;
+        }
+    }
+
+    private void runNext() {
+        final PendingWrite write = mPendingWrites.pollFirst();
+        mWriteInProgress = write;
+        if (write == null) {
+            mbWriteInProgress = false;
+            List<Runnable> idleCallbacks = new ArrayList<>(mIdleCallbacks);
+            mIdleCallbacks.clear();
+            for (Runnable callback : idleCallbacks) {
+                callback.run();
+            }
+            return;
+        }
+        mbWriteInProgress = true;
+        mRealm.executeTransactionAsync(write.transaction, () -> {
+            // writes enqueued from this callback are queued behind the pending ones, not run
+            // concurrently, because mbWriteInProgress is still true here
+            if (write.onCommitted != null && ! write.cancelled) {
+                write.onCommitted.run();
+            }
+            runNext();
+        }, error -> {
+            // the write was rolled back; report it, but carry on with the rest of the queue, else
+            // every later write (and idle callback) would be silently dropped
+            Crashlytics.log(Log.ERROR, TAG, "Realm write failed: " + Log.getStackTraceString(error));
+            Crashlytics.logException(error);
+            runNext();
+        });
+    }
+
+    private static final class PendingWrite {
+        final Realm.Transaction transaction;
+        @Nullable final Runnable onCommitted;
+        boolean cancelled = false;
+
+        PendingWrite(@NonNull Realm.Transaction transaction, @Nullable Runnable onCommitted) {
+            this.transaction = transaction;
+            this.onCommitted = onCommitted;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package me.vickychijwani.spectre.network;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether and when a failed image upload from the outbox is retried. Transient failures
+ * (no connection, timeouts, server errors) are retried with exponential backoff for as long as it
+ * takes, since the image is already referenced from a post; failures that will only repeat (e.g.,
+ * the server rejecting the file) are not.
+ *
+ * All times are in milliseconds.
+ */
+final class UploadRetryPolicy {
+
+    // delay after the first failure, doubled after each subsequent one...
+    static final long BASE_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+    // ...up to this much, so an upload that failed repeatedly while offline goes out soon after
+    // the device is back online
+    static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toMillis(30);
+
+    private UploadRetryPolicy() {}
+
+    /**
+     * @param attempts - number of failed attempts so far, including the one that just failed
+     * @return how long to wait before the next attempt
+     */
+    static long getRetryDelay(int attempts) {
+        long delay = BASE_RETRY_DELAY;
+        for (int i = 1; i < attempts && delay < MAX_RETRY_DELAY; ++i) {
+            delay *= 2;
+        }
+        return Math.min(delay, MAX_RETRY_DELAY);
+    }
+
+    /**
+     * @param httpCode - status code of an unsuccessful response (other than 401, which is handled
+     *                 by re-authorizing)
+     * @return true if sending the same upload again could succeed
+     */
+    static boolean isRetryable(int httpCode) {
+        return httpCode >= 500
+                || httpCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                || httpCode == 429;     // too many requests
+    }
+
+}
@@ -0,0 +1,112 @@
+package me.vickychijwani.spectre.network;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * A request body that streams the contents of a content:// (or file://) Uri, instead of reading
+ * the whole file into memory first. The Uri is opened and read by OkHttp on a background thread,
+ * every time the body is written (e.g., again on a retry).
+ */
+final class UriRequestBody extends RequestBody {
+
+    interface ProgressListener {
+        /**
+         * Called on the thread writing the request (NOT the main thread) as the body is written.
+         * @param totalBytes - the size of the file, or -1 if unknown
+         */
+        void onProgress(long bytesWritten, long totalBytes);
+    }
+
+    private static final long SEGMENT_SIZE = 8192;
+    // report progress at most this often, in bytes written
+    private static final long PROGRESS_STEP = 64 * 1024;
+
+    private final ContentResolver mContentResolver;
+    private final Uri mUri;
+    private final MediaType mContentType;
+    @Nullable private final ProgressListener mProgressListener;
+    private long mContentLength = -2;       // -2 = not known yet, -1 = unknown
+
+    UriRequestBody(@NonNull ContentResolver contentResolver, @NonNull Uri uri,
+                   @Nullable MediaType contentType, @Nullable ProgressListener progressListener) {
+        mContentResolver = contentResolver;
+        mUri = uri;
+        mContentType = contentType;
+        mProgressListener = progressListener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mContentType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (mContentLength == -2) {
+            mContentLength = queryLength();
+        }
+        return mContentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long totalBytes = contentLength();
+        InputStream inputStream = mContentResolver.openInputStream(mUri);
+        if (inputStream == null) {
+            throw new FileNotFoundException("Failed to open input stream for uri: " + mUri);
+        }
+        Source source = Okio.source(inputStream);
+        try {
+            Buffer buffer = sink.buffer();
+            long bytesWritten = 0, lastReported = 0;
+            long read;
+            while ((read = source.read(buffer, SEGMENT_SIZE)) != -1) {
+                sink.emitCompleteSegments();
+                bytesWritten += read;
+                if (mProgressListener != null && bytesWritten - lastReported >= PROGRESS_STEP) {
+                    mProgressListener.onProgress(bytesWritten, totalBytes);
+                    lastReported = bytesWritten;
+                }
+            }
+            if (mProgressListener != null && bytesWritten != lastReported) {
+                mProgressListener.onProgress(bytesWritten, totalBytes);
+            }
+        } finally {
+            try {
+                source.close();     // also closes the input stream
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private long queryLength() {
+        AssetFileDescriptor fd = null;
+        try {
+            fd = mContentResolver.openAssetFileDescriptor(mUri, "r");
+            return (fd != null) ? fd.getLength() : -1;  // getLength() is -1 if unknown
+        } catch (IOException | SecurityException e) {
+            return -1;
+        } finally {
+            if (fd != null) {
+                try {
+                    fd.close();
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+}
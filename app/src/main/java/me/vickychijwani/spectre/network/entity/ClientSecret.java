@@ -0,0 +1,15 @@
+package me.vickychijwani.spectre.network.entity;
+
+import android.support.annotation.Nullable;
+
+// client secret found on the Ghost admin page, see ClientSecretConverterFactory
+public final class ClientSecret {
+
+    // null in older Ghost versions (< 0.7.x) which don't have a client secret
+    @Nullable public final String value;
+
+    public ClientSecret(@Nullable String value) {
+        this.value = value;
+    }
+
+}
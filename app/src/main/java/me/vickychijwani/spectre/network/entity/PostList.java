@@ -1,6 +1,7 @@
 package me.vickychijwani.spectre.network.entity;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import java.util.Arrays;
 import java.util.List;
@@ -12,6 +13,7 @@ import me.vickychijwani.spectre.model.entity.Post;
 public class PostList {
 
     public List<Post> posts;
+    public ResponseMeta meta;
 
     public static PostList from(Post... posts) {
         PostList postList = new PostList();
@@ -28,6 +30,18 @@ public class PostList {
         return false;
     }
 
+    /**
+     * @return the number of the page after this one, or null if this is the last page (or if the
+     * response was not paginated)
+     */
+    @Nullable
+    public Integer getNextPage() {
+        if (meta == null || meta.pagination == null) {
+            return null;
+        }
+        return meta.pagination.next;
+    }
+
     public Post remove(int idx) {
         return posts.remove(idx);
     }
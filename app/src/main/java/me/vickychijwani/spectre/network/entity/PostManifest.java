@@ -0,0 +1,21 @@
+package me.vickychijwani.spectre.network.entity;
+
+import java.util.Date;
+import java.util.List;
+
+// lightweight listing of ALL posts on the server, only includes the fields needed to reconcile the
+// local copy against the server (e.g., to detect posts deleted on the server)
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class PostManifest {
+
+    public List<Entry> posts;
+
+    public static class Entry {
+        // field names should EXACTLY match those in Post class
+        public int id;
+        public String uuid;
+        public int author;
+        public Date updatedAt;
+    }
+
+}
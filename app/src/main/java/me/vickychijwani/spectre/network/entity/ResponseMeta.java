@@ -0,0 +1,19 @@
+package me.vickychijwani.spectre.network.entity;
+
+// "meta" object attached by Ghost to paginated list responses, e.g.:
+// { meta: { pagination: { page: 1, limit: 15, pages: 3, total: 40, next: 2, prev: null } } }
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class ResponseMeta {
+
+    public Pagination pagination;
+
+    public static class Pagination {
+        public int page;
+        public int limit;
+        public int pages;
+        public int total;
+        public Integer next;    // null on the last page
+        public Integer prev;    // null on the first page
+    }
+
+}
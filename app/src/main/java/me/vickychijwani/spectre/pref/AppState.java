@@ -17,6 +17,20 @@ public class AppState extends Prefs<AppState.Key> {
 
         public static final Key LOGGED_IN = new Key("logged_in", Boolean.class, false);
 
+        // page to resume from if the last posts sync was interrupted midway
+        public static final Key POSTS_SYNC_NEXT_PAGE = new Key("posts_sync_next_page", Integer.class, 1);
+
+        // latest updated_at (epoch millis) among posts received in the last completed posts sync,
+        // subsequent syncs only fetch posts updated after this; 0 means a full sync is needed
+        public static final Key POSTS_SYNC_WATERMARK = new Key("posts_sync_watermark", Long.class, 0L);
+
+        // client secret scraped from the Ghost admin page, cached to avoid downloading that page
+        // on every login / token refresh; only valid for the blog it was fetched from
+        public static final Key CLIENT_SECRET = new Key("client_secret", String.class, "");
+        public static final Key CLIENT_SECRET_BLOG_URL = new Key("client_secret_blog_url", String.class, "");
+        // when the cached client secret was fetched (epoch millis)
+        public static final Key CLIENT_SECRET_FETCHED_AT = new Key("client_secret_fetched_at", Long.class, 0L);
+
         /* package */ <T> Key(String str, Class<T> type, T defaultValue) {
             super(str, type, defaultValue);
         }
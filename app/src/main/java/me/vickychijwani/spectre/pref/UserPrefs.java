@@ -20,6 +20,13 @@ public class UserPrefs extends Prefs<UserPrefs.Key> {
         public static final Key PASSWORD = new Key("password", String.class, "");
         public static final Key PERMALINK_FORMAT = new Key("permalink_format", String.class, "/:slug/");
 
+        // images are downscaled and re-compressed before uploading, unless this is turned off
+        public static final Key RESIZE_IMAGES_BEFORE_UPLOAD = new Key("resize_images_before_upload", Boolean.class, true);
+        // max length of the longer side of an uploaded image, in pixels
+        public static final Key UPLOAD_IMAGE_MAX_SIZE = new Key("upload_image_max_size", Integer.class, 2000);
+        // JPEG quality of uploaded images, 0-100
+        public static final Key UPLOAD_IMAGE_QUALITY = new Key("upload_image_quality", Integer.class, 85);
+
         /* package */ <T> Key(String str, Class<T> type, T defaultValue) {
             super(str, type, defaultValue);
         }
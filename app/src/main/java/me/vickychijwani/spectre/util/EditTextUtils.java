@@ -5,6 +5,9 @@ import android.text.Editable;
 import android.util.Patterns;
 import android.widget.EditText;
 
+import java.util.Collections;
+import java.util.List;
+
 import me.vickychijwani.spectre.util.functions.Action1;
 
 public final class EditTextUtils {
@@ -88,9 +91,20 @@ public final class EditTextUtils {
 
     public static void insertMarkdownImageMarkers(@NonNull String imageUrl,
                                                   @NonNull EditTextSelectionState selectionState) {
-        String left = "\n\n![", right = "](" + imageUrl + ")\n\n";
-        int insertPos = insertAtCursorOrEnd(selectionState, left + right);
-        // position cursor after left: LEFT|RIGHT
+        insertMarkdownImageMarkers(Collections.singletonList(imageUrl), selectionState);
+    }
+
+    // inserts the images one after another, in the given order
+    public static void insertMarkdownImageMarkers(@NonNull List<String> imageUrls,
+                                                  @NonNull EditTextSelectionState selectionState) {
+        String left = "\n\n![";
+        StringBuilder images = new StringBuilder();
+        for (String imageUrl : imageUrls) {
+            images.append(left).append("](").append(imageUrl).append(")");
+        }
+        images.append("\n\n");
+        int insertPos = insertAtCursorOrEnd(selectionState, images);
+        // position cursor after the first left: LEFT|RIGHT LEFT RIGHT ...
         moveCursorTo(selectionState, insertPos + left.length());
     }
 
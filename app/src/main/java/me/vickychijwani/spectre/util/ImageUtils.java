@@ -0,0 +1,263 @@
+package me.vickychijwani.spectre.util;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.media.ExifInterface;
+import android.util.Log;
+import android.webkit.MimeTypeMap;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class ImageUtils {
+
+    private static final String TAG = ImageUtils.class.getSimpleName();
+
+    // images waiting to be uploaded are copied here, and deleted once uploaded; this is not in the
+    // cache dir because the system may clear that before the device is back online
+    private static final String UPLOAD_OUTBOX_PATH = "upload-outbox";
+
+    public static final String MIME_TYPE_JPEG = "image/jpeg";
+    public static final String MIME_TYPE_PNG = "image/png";
+
+    /**
+     * Result of {@link #resizeForUpload}.
+     */
+    public static final class ResizedImage {
+        @NonNull public final File file;
+        @NonNull public final String mimeType;
+
+        ResizedImage(@NonNull File file, @NonNull String mimeType) {
+            this.file = file;
+            this.mimeType = mimeType;
+        }
+    }
+
+    /**
+     * Downscales the given image so that its longer side is at most {@code maxSize} pixels,
+     * applies its EXIF orientation (which is lost when re-encoding), and re-encodes it into a new
+     * file in the upload outbox. MUST be called on a background thread.
+     *
+     * @param quality - JPEG quality, 0-100; PNGs are re-encoded losslessly
+     * @return the resized image, or null if the image should be uploaded as-is: because it's
+     * already small enough and upright, or it's in a format that can't be re-encoded without losing
+     * something (e.g., animated GIFs)
+     */
+    @Nullable
+    public static ResizedImage resizeForUpload(@NonNull Context context, @NonNull Uri uri,
+                                               @NonNull String mimeType, int maxSize,
+                                               int quality) throws IOException {
+        Bitmap.CompressFormat format;
+        if (MIME_TYPE_JPEG.equals(mimeType)) {
+            format = Bitmap.CompressFormat.JPEG;
+        } else if (MIME_TYPE_PNG.equals(mimeType)) {
+            format = Bitmap.CompressFormat.PNG;
+        } else {
+            return null;
+        }
+        ContentResolver contentResolver = context.getContentResolver();
+
+        // read only the dimensions first
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        InputStream in = openInputStream(contentResolver, uri);
+        try {
+            BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            closeQuietly(in);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;        // not something we can decode, let the server deal with it
+        }
+        int orientation = ExifInterface.ORIENTATION_NORMAL;
+        if (format == Bitmap.CompressFormat.JPEG) {
+            in = openInputStream(contentResolver, uri);
+            try {
+                orientation = new ExifInterface(in).getAttributeInt(
+                        ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            } finally {
+                closeQuietly(in);
+            }
+        }
+        boolean needsRotation = orientation != ExifInterface.ORIENTATION_NORMAL
+                && orientation != ExifInterface.ORIENTATION_UNDEFINED;
+        if (Math.max(options.outWidth, options.outHeight) <= maxSize && ! needsRotation) {
+            return null;
+        }
+
+        // decode a subsampled bitmap that is still at least as large as the target size, to keep
+        // the memory needed for decoding in check
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSize);
+        Bitmap sampled;
+        in = openInputStream(contentResolver, uri);
+        try {
+            sampled = BitmapFactory.decodeStream(in, null, options);
+        } finally {
+            closeQuietly(in);
+        }
+        if (sampled == null) {
+            return null;
+        }
+
+        // scale to the exact target size and apply the orientation in one go
+        float scale = getScaleFactor(sampled.getWidth(), sampled.getHeight(), maxSize);
+        Matrix matrix = getOrientationMatrix(orientation);
+        matrix.preScale(scale, scale);
+        Bitmap resized = Bitmap.createBitmap(sampled, 0, 0, sampled.getWidth(),
+                sampled.getHeight(), matrix, true);
+        if (resized != sampled) {
+            sampled.recycle();
+        }
+
+        File file = createUploadOutboxFile(context, format == Bitmap.CompressFormat.JPEG ? "jpg" : "png");
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            if (! resized.compress(format, quality, out)) {
+                throw new IOException("Failed to encode resized image: " + uri);
+            }
+            out.close();
+        } catch (IOException e) {
+            closeQuietly(out);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            throw e;
+        } finally {
+            resized.recycle();
+        }
+        Log.d(TAG, "Resized image " + uri + " to " + file.length() + " bytes");
+        return new ResizedImage(file, mimeType);
+    }
+
+    /**
+     * Copies the given file as-is into the upload outbox, so it can be uploaded even if the
+     * original is no longer readable by then (e.g., a temporary content:// grant has expired).
+     * MUST be called on a background thread.
+     */
+    @NonNull
+    public static File copyForUpload(@NonNull Context context, @NonNull Uri uri,
+                                     @NonNull String mimeType) throws IOException {
+        String ext = MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType);
+        File file = createUploadOutboxFile(context, (ext != null) ? ext : "bin");
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            in = openInputStream(context.getContentResolver(), uri);
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            out.close();
+        } catch (IOException e) {
+            closeQuietly(out);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            throw e;
+        } finally {
+            closeQuietly(in);
+        }
+        return file;
+    }
+
+    /**
+     * @return the directory in which images waiting to be uploaded are kept
+     */
+    @NonNull
+    public static File getUploadOutboxDir(@NonNull Context context) {
+        return new File(context.getFilesDir(), UPLOAD_OUTBOX_PATH);
+    }
+
+    /**
+     * @return the largest power-of-2 sample size with which the longer side of the decoded image is
+     * still at least {@code maxSize}
+     */
+    static int calculateInSampleSize(int width, int height, int maxSize) {
+        int longSide = Math.max(width, height);
+        int inSampleSize = 1;
+        while (longSide / (inSampleSize * 2) >= maxSize) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * @return the factor by which to scale an image so that its longer side is at most
+     * {@code maxSize}, never more than 1 (i.e., images are never upscaled)
+     */
+    static float getScaleFactor(int width, int height, int maxSize) {
+        int longSide = Math.max(width, height);
+        return (longSide <= maxSize) ? 1f : (float) maxSize / longSide;
+    }
+
+
+    // helpers
+    private static InputStream openInputStream(ContentResolver contentResolver, Uri uri)
+            throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("Failed to open input stream for uri: " + uri);
+        }
+        return in;
+    }
+
+    private static void closeQuietly(@Nullable Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {}
+    }
+
+    private static Matrix getOrientationMatrix(int exifOrientation) {
+        Matrix matrix = new Matrix();
+        switch (exifOrientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.setScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.setRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.setScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.setRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.setRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.setRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.setRotate(-90);
+                break;
+        }
+        return matrix;
+    }
+
+    private static File createUploadOutboxFile(Context context, String ext) throws IOException {
+        File dir = getUploadOutboxDir(context);
+        if (! dir.exists() && ! dir.mkdirs()) {
+            throw new IOException("Failed to create directory: " + dir);
+        }
+        return File.createTempFile("upload-", "." + ext, dir);
+    }
+
+}
@@ -6,6 +6,7 @@ import android.net.NetworkInfo;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
+import android.support.v4.net.ConnectivityManagerCompat;
 
 import java.io.IOException;
 import java.lang.annotation.Retention;
@@ -16,6 +17,7 @@ import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
 
 import io.reactivex.Observable;
+import me.vickychijwani.spectre.error.NoConnectivityException;
 import me.vickychijwani.spectre.error.UrlNotFoundException;
 import okhttp3.Call;
 import okhttp3.OkHttpClient;
@@ -31,6 +33,8 @@ public class NetworkUtils {
     public static final String SCHEME_HTTP = "http://";
     public static final String SCHEME_HTTPS = "https://";
 
+    private static final String SCHEME_FILE = "file://";
+
     /**
      * Check whether there is any network with a usable connection.
      */
@@ -41,6 +45,17 @@ public class NetworkUtils {
         return activeNetworkInfo != null && activeNetworkInfo.isConnected();
     }
 
+    /**
+     * Check whether the network in use is connected and not metered (e.g., Wi-Fi rather than
+     * mobile data), i.e., whether it's fine to download things the user hasn't asked for yet.
+     */
+    public static boolean isConnectedToUnmeteredNetwork(Context context) {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        return isConnected(context)
+                && ! ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager);
+    }
+
     public static boolean isUnauthorized(@Nullable Response response) {
         if (response == null) {
             return false;
@@ -67,7 +82,8 @@ public class NetworkUtils {
     }
 
     public static boolean isConnectionError(Throwable error) {
-        return error instanceof ConnectException || error instanceof SocketTimeoutException;
+        return error instanceof ConnectException || error instanceof SocketTimeoutException
+                || error instanceof NoConnectivityException;
     }
 
     public static String makeAbsoluteUrl(@NonNull String baseUrl, @NonNull String relativePath) {
@@ -82,6 +98,11 @@ public class NetworkUtils {
             return relativePath;
         }
 
+        // or a local copy of an image that is yet to be uploaded
+        if (relativePath.startsWith(SCHEME_FILE)) {
+            return relativePath;
+        }
+
         boolean baseHasSlash = baseUrl.endsWith("/");
         boolean relHasSlash = relativePath.startsWith("/");
         if (baseHasSlash && relHasSlash) {
@@ -12,76 +12,31 @@ import android.util.Log;
 import com.crashlytics.android.Crashlytics;
 
 import java.util.Calendar;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.regex.Pattern;
 
 import me.vickychijwani.spectre.R;
 import me.vickychijwani.spectre.SpectreApplication;
 import me.vickychijwani.spectre.model.entity.PendingAction;
 import me.vickychijwani.spectre.model.entity.Post;
+import me.vickychijwani.spectre.model.entity.PostSummary;
 import me.vickychijwani.spectre.model.entity.Tag;
 import me.vickychijwani.spectre.pref.UserPrefs;
 
 public class PostUtils {
 
     /**
-     * Sort order:
-     * 1. New posts that are yet to be created on the server, sorted by updatedAt
-     * 2. Scheduled posts, sorted by publishedAt
-     * 3. Drafts, sorted by updatedAt
-     * 4. Published posts, sorted by publishedAt
-     *
-     * See Ghost Admin's sort order in the file core/server/models/post.js, search for 'orderDefaultOptions'
+     * @return a pattern matching Markdown image markers (e.g., "![alt](url)" or
+     * "![alt](url "title")") that show the given image, including the blank line inserted before
+     * the marker by the editor, if any
      */
-    @SuppressWarnings("unused")
-    public static Comparator<Post> COMPARATOR_MAIN_LIST = (lhs, rhs) -> {
-        boolean isLhsNew = lhs.hasPendingAction(PendingAction.CREATE);
-        boolean isRhsNew = rhs.hasPendingAction(PendingAction.CREATE);
-        boolean isLhsScheduled = lhs.isScheduled();
-        boolean isRhsScheduled = rhs.isScheduled();
-        boolean isLhsDraft = lhs.isDraft();
-        boolean isRhsDraft = rhs.isDraft();
-        boolean isLhsPublished = lhs.isPublished();
-        boolean isRhsPublished = rhs.isPublished();
-
-        if (isLhsNew && !isRhsNew) return -1;
-        if (isRhsNew && !isLhsNew) return 1;
-
-        if (isLhsScheduled && !isRhsScheduled) return -1;
-        if (isRhsScheduled && !isLhsScheduled) return 1;
-
-        if (isLhsDraft && !isRhsDraft) return -1;
-        if (isRhsDraft && !isLhsDraft) return 1;
-
-        if (isLhsPublished && !isRhsPublished) return -1;
-        if (isRhsPublished && !isLhsPublished) return 1;
-
-        // at this point, we know both lhs and rhs belong to the same group (new, scheduled, drafts,
-        // published). NOTE: (-) sign because we want to sort in reverse chronological order.
-        if ((isLhsPublished || isLhsScheduled)) {
-            // FIXME Crashlytics issue #110 - published posts can have null date - why?
-            if (lhs.getPublishedAt() != null && rhs.getPublishedAt() != null) {
-                // use date published for sorting scheduled or published posts ...
-                return -lhs.getPublishedAt().compareTo(rhs.getPublishedAt());
-            }
-        }
-
-        // ... else use date modified (for drafts and new posts)
-        if (lhs.getUpdatedAt() != null && rhs.getUpdatedAt() != null) {
-            return -lhs.getUpdatedAt().compareTo(rhs.getUpdatedAt());
-        }
-
-        // fallback to creation date
-        if (lhs.getCreatedAt() != null && rhs.getCreatedAt() != null) {
-            return -lhs.getCreatedAt().compareTo(rhs.getCreatedAt());
-        }
-
-        // this is just paranoia
-        // higher id above, because it was likely created later
-        return -lhs.getId() + rhs.getId();
-    };
+    @NonNull
+    public static Pattern makeImageMarkdownPattern(@NonNull String imageUrl) {
+        return Pattern.compile("(?:\\n\\n)?!\\[[^\\]]*\\]\\(" + Pattern.quote(imageUrl)
+                + "(?:\\s+\"[^\"]*\")?\\)");
+    }
 
     @SuppressWarnings({"RedundantIfStatement", "OverlyComplexMethod"})
     public static boolean isDirty(@NonNull Post original, @NonNull Post current) {
@@ -142,7 +97,7 @@ public class PostUtils {
         }
     }
 
-    public static String getStatusString(@Nullable Post post, @NonNull Context context) {
+    public static String getStatusString(@Nullable PostSummary post, @NonNull Context context) {
         if (post == null) throw new IllegalArgumentException("post cannot be null!");
         String status;
         if (post.isMarkedForDeletion()) {
@@ -166,7 +121,7 @@ public class PostUtils {
     }
 
     @ColorInt
-    public static int getStatusColor(@Nullable Post post, @NonNull Context context) {
+    public static int getStatusColor(@Nullable PostSummary post, @NonNull Context context) {
         if (post == null) throw new IllegalArgumentException("post cannot be null!");
         int colorId;
         if (post.hasPendingAction(PendingAction.DELETE)) {
@@ -188,7 +143,7 @@ public class PostUtils {
     }
 
     @DrawableRes
-    public static int getStatusIconResId(@Nullable Post post) {
+    public static int getStatusIconResId(@Nullable PostSummary post) {
         if (post == null) throw new IllegalArgumentException("post cannot be null!");
         if (post.isDraft()) {
             return R.drawable.status_draft;
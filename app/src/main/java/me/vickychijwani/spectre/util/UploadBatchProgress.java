@@ -0,0 +1,78 @@
+package me.vickychijwani.spectre.util;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the combined progress of a batch of files being uploaded concurrently, each identified by
+ * a key (e.g., its placeholder URL). Every file counts equally towards the overall progress,
+ * whatever its size, so the total is meaningful before the sizes of all files are known.
+ */
+public final class UploadBatchProgress {
+
+    // fraction of each file uploaded so far, in [0, 1]
+    private final Map<String, Float> mProgressByKey = new LinkedHashMap<>();
+    private final Set<String> mDoneKeys = new HashSet<>();
+
+    public UploadBatchProgress(@NonNull Collection<String> keys) {
+        for (String key : keys) {
+            mProgressByKey.put(key, 0f);
+        }
+    }
+
+    public boolean contains(@NonNull String key) {
+        return mProgressByKey.containsKey(key);
+    }
+
+    /**
+     * @param totalBytes - size of the file, or a negative number if unknown
+     */
+    public void setProgress(@NonNull String key, long bytesUploaded, long totalBytes) {
+        if (! contains(key) || mDoneKeys.contains(key) || totalBytes <= 0) {
+            return;
+        }
+        mProgressByKey.put(key, Math.min((float) bytesUploaded / totalBytes, 1f));
+    }
+
+    /**
+     * Marks the file as no longer uploading, whether it succeeded or not.
+     */
+    public void setDone(@NonNull String key) {
+        if (contains(key)) {
+            mDoneKeys.add(key);
+            mProgressByKey.put(key, 1f);
+        }
+    }
+
+    public int getCount() {
+        return mProgressByKey.size();
+    }
+
+    public int getDoneCount() {
+        return mDoneKeys.size();
+    }
+
+    public boolean isDone() {
+        return getDoneCount() == getCount();
+    }
+
+    /**
+     * @return the overall progress of the batch, from 0 to 100
+     */
+    public int getPercent() {
+        if (mProgressByKey.isEmpty()) {
+            return 100;
+        }
+        float sum = 0;
+        for (float progress : mProgressByKey.values()) {
+            sum += progress;
+        }
+        return (int) (100 * sum / mProgressByKey.size());
+    }
+
+}
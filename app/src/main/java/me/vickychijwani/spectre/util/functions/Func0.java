@@ -0,0 +1,10 @@
+package me.vickychijwani.spectre.util.functions;
+
+/**
+ * A function with no arguments.
+ */
+public interface Func0<R> {
+
+    R call();
+
+}
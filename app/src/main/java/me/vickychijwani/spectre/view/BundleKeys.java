@@ -3,6 +3,8 @@ package me.vickychijwani.spectre.view;
 public final class BundleKeys {
 
     public static final String POST = "key:post";
+    public static final String POST_UUID = "key:post_uuid";
+    public static final String POST_TITLE = "key:post_title";
     public static final String FILE_STORAGE_ENABLED = "key:file_storage_enabled";
     public static final String START_EDITING = "key:start_editing";
     public static final String URL = "key:url";
@@ -5,12 +5,10 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.v7.app.AlertDialog;
 import android.util.Log;
-import android.util.Pair;
 
 import com.crashlytics.android.Crashlytics;
 
 import java.io.IOException;
-import java.io.InputStream;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
@@ -34,22 +32,23 @@ public class Observables {
         AlertDialog makeDialog(ObservableEmitter<T> emitter);
     }
 
-    public static Observable<Pair<InputStream, String>> getFileUploadMetadataFromUri(
+    /**
+     * @return the mime type of the file at the given Uri, for uploading it. Doesn't open the file,
+     * that happens while it's being uploaded.
+     */
+    public static Observable<String> getFileUploadMimeTypeFromUri(
             @NonNull ContentResolver contentResolver,
             @NonNull Uri fileUri) {
         return Observable.create(emitter -> {
-            try {
-                Log.d(TAG, "Attempting to read uri: " + fileUri);
-                InputStream inputStream = contentResolver.openInputStream(fileUri);
-                String mimeType = contentResolver.getType(fileUri);
-                emitter.onNext(new Pair<>(inputStream, mimeType));
-            } catch (IOException e) {
-                emitter.onError(e);
-                Crashlytics.logException(new Exception("Failed to open input stream for uri, " +
-                        "see previous exception", e));
-                Log.e(TAG, Log.getStackTraceString(e));
-            } finally {
+            Log.d(TAG, "Attempting to read uri: " + fileUri);
+            String mimeType = contentResolver.getType(fileUri);
+            if (mimeType != null) {
+                emitter.onNext(mimeType);
                 emitter.onComplete();
+            } else {
+                Exception e = new IOException("Unknown mime type for uri: " + fileUri);
+                Crashlytics.logException(e);
+                emitter.onError(e);
             }
         });
     }
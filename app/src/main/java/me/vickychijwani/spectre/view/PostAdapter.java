@@ -1,6 +1,7 @@
 package me.vickychijwani.spectre.view;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
@@ -11,9 +12,7 @@ import android.support.annotation.NonNull;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPropertyAnimatorListener;
 import android.support.v7.widget.RecyclerView;
-import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.text.TextUtils;
-import android.text.method.LinkMovementMethod;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -28,25 +27,20 @@ import java.util.List;
 import butterknife.Bind;
 import butterknife.ButterKnife;
 import me.vickychijwani.spectre.R;
-import me.vickychijwani.spectre.model.entity.Post;
-import me.vickychijwani.spectre.model.entity.Tag;
+import me.vickychijwani.spectre.model.entity.PostSummary;
 import me.vickychijwani.spectre.util.DeviceUtils;
 import me.vickychijwani.spectre.util.NetworkUtils;
 import me.vickychijwani.spectre.util.PostUtils;
 
 class PostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private static final int TYPE_POST = 1;
-    private static final int TYPE_FOOTER = 2;
-
     private final LayoutInflater mLayoutInflater;
-    private final List<Post> mPosts;
+    private final List<PostSummary> mPosts;
     private final Context mContext;
     private final String mBlogUrl;
     private final Picasso mPicasso;
     private final View.OnClickListener mItemClickListener;
     private final Paint mLowAlphaPaint;
-    private CharSequence mFooterText;
 
     // animation stuff
     private static final DecelerateInterpolator ANIM_INTERPOLATOR = new DecelerateInterpolator();
@@ -55,7 +49,7 @@ class PostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private final Handler mHandler = new Handler(Looper.getMainLooper());
     private int mAnimationDelay = 0; // for staggering
 
-    public PostAdapter(Context context, List<Post> posts, String blogUrl, Picasso picasso,
+    public PostAdapter(Context context, List<PostSummary> posts, String blogUrl, Picasso picasso,
                        View.OnClickListener itemClickListener) {
         mContext = context;
         mBlogUrl = blogUrl;
@@ -77,84 +71,40 @@ class PostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     @Override
     public int getItemCount() {
-        int count = mPosts.size();
-        if (mFooterText != null) {
-            ++count; // +1 for footer
-        }
-        return count;
+        return mPosts.size();
     }
 
-    public Object getItem(int position) {
-        if (position < mPosts.size()) {
-            return mPosts.get(position);
-        } else {
-            return mFooterText;
-        }
+    public PostSummary getItem(int position) {
+        return mPosts.get(position);
     }
 
     @Override
     public long getItemId(int position) {
-        if (getItemViewType(position) == TYPE_POST) {
-            return ((Post) getItem(position)).getUuid().hashCode();
-        } else {
-            return -9999;   // footer
-        }
-    }
-
-    @Override
-    public int getItemViewType(int position) {
-        if (position < mPosts.size()) {
-            return TYPE_POST;
-        } else {
-            return TYPE_FOOTER;
-        }
+        return getItem(position).getUuid().hashCode();
     }
 
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        if (viewType == TYPE_POST) {
-            View view = mLayoutInflater.inflate(R.layout.post_list_item, parent, false);
-            return new PostViewHolder(view, mItemClickListener);
-        } else if (viewType == TYPE_FOOTER) {
-            View view = mLayoutInflater.inflate(R.layout.post_list_footer, parent, false);
-
-            // make sure the footer spans the entire grid
-            StaggeredGridLayoutManager.LayoutParams lp = (StaggeredGridLayoutManager.LayoutParams) view.getLayoutParams();
-            if (lp == null) {
-                lp = new StaggeredGridLayoutManager.LayoutParams(
-                        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-            }
-            lp.setFullSpan(true);
-            view.setLayoutParams(lp);
-
-            return new FooterViewHolder(view);
-        }
-        throw new IllegalArgumentException("Invalid view type: " + viewType);
+        View view = mLayoutInflater.inflate(R.layout.post_list_item, parent, false);
+        return new PostViewHolder(view, mItemClickListener);
     }
 
     @Override
     public void onBindViewHolder(RecyclerView.ViewHolder viewHolder, int position) {
-        if (viewHolder instanceof PostViewHolder) {
-            PostViewHolder postVH = (PostViewHolder) viewHolder;
-            Post post = (Post) getItem(position);
-            bindPost(postVH, post);
-        } else if (viewHolder instanceof FooterViewHolder) {
-            FooterViewHolder footerVH = (FooterViewHolder) viewHolder;
-            CharSequence footerText = (CharSequence) getItem(position);
-            bindFooter(footerVH, footerText);
-        } else {
-            throw new IllegalArgumentException("Invalid ViewHolder type: " +
-                    viewHolder.getClass().getSimpleName());
-        }
+        bindPost((PostViewHolder) viewHolder, getItem(position));
     }
 
-    private void bindPost(PostViewHolder viewHolder, Post post) {
+    private void bindPost(PostViewHolder viewHolder, PostSummary post) {
         viewHolder.title.setText(post.getTitle());
         if (! TextUtils.isEmpty(post.getImage())) {
             String imageUrl = NetworkUtils.makeAbsoluteUrl(mBlogUrl, post.getImage());
             viewHolder.image.setVisibility(View.VISIBLE);
+            // cards are much smaller than most cover images, so decode them at the size of the
+            // card, never larger, and without alpha (covers are photos), at half the memory
             mPicasso.load(imageUrl)
                     .fit().centerCrop()
+                    .onlyScaleDown()
+                    .config(Bitmap.Config.RGB_565)
                     .into(viewHolder.image);
         } else {
             viewHolder.image.setVisibility(View.GONE);
@@ -165,11 +115,11 @@ class PostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         viewHolder.statusIcon.setColorFilter(postStatusColor, PorterDuff.Mode.SRC_IN);
         viewHolder.statusText.setText(PostUtils.getStatusString(post, mContext));
         viewHolder.statusText.setTextColor(postStatusColor);
-        List<Tag> tags = post.getTags();
-        if (tags.size() > 0) {
-            String tagsStr = "#" + tags.get(0).getName();
-            if (tags.size() > 1) {
-                tagsStr += " +" + (tags.size()-1);
+        List<String> tagNames = post.getTagNames();
+        if (tagNames.size() > 0) {
+            String tagsStr = "#" + tagNames.get(0);
+            if (tagNames.size() > 1) {
+                tagsStr += " +" + (tagNames.size()-1);
             }
             viewHolder.tags.setText(tagsStr);
             viewHolder.tags.setVisibility(View.VISIBLE);
@@ -243,23 +193,10 @@ class PostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     @Override
     public void onViewRecycled(RecyclerView.ViewHolder holder) {
         if (holder instanceof PostViewHolder) {
-            ((PostViewHolder) holder).cleanup();
+            ((PostViewHolder) holder).cleanup(mPicasso);
         }
     }
 
-    private void bindFooter(FooterViewHolder viewHolder, CharSequence footerText) {
-        viewHolder.textView.setText(footerText);
-        viewHolder.textView.setMovementMethod(LinkMovementMethod.getInstance());
-    }
-
-    public void showFooter(CharSequence footerText) {
-        mFooterText = footerText;
-    }
-
-    public void hideFooter() {
-        mFooterText = null;
-    }
-
 
     static class PostViewHolder extends RecyclerView.ViewHolder {
         @Bind(R.id.post_title)          TextView title;
@@ -275,19 +212,9 @@ class PostAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         }
 
         // courtesy http://stackoverflow.com/a/33961706/504611
-        public void cleanup() {
-            Picasso.with(image.getContext())
-                    .cancelRequest(image);
-        }
-    }
-
-
-    static class FooterViewHolder extends RecyclerView.ViewHolder {
-        @Bind(R.id.post_limit_exceeded) TextView textView;
-
-        public FooterViewHolder(View view) {
-            super(view);
-            ButterKnife.bind(this, view);
+        // must be the Picasso instance that made the request, not the global one
+        public void cleanup(@NonNull Picasso picasso) {
+            picasso.cancelRequest(image);
         }
     }
 
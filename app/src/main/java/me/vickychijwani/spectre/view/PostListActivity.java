@@ -24,7 +24,6 @@ import android.support.v7.widget.DefaultItemAnimator;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.support.v7.widget.Toolbar;
-import android.text.Html;
 import android.util.Log;
 import android.util.TypedValue;
 import android.view.Menu;
@@ -64,7 +63,7 @@ import me.vickychijwani.spectre.event.PostsLoadedEvent;
 import me.vickychijwani.spectre.event.RefreshDataEvent;
 import me.vickychijwani.spectre.event.UserLoadedEvent;
 import me.vickychijwani.spectre.model.entity.ConfigurationParam;
-import me.vickychijwani.spectre.model.entity.Post;
+import me.vickychijwani.spectre.model.entity.PostSummary;
 import me.vickychijwani.spectre.model.entity.Setting;
 import me.vickychijwani.spectre.pref.AppState;
 import me.vickychijwani.spectre.pref.UserPrefs;
@@ -80,7 +79,7 @@ public class PostListActivity extends BaseActivity {
     private static final String TAG = "PostListActivity";
     public static final int REQUEST_CODE_VIEW_POST = 1;
 
-    private final List<Post> mPosts = new ArrayList<>();
+    private final List<PostSummary> mPosts = new ArrayList<>();
     private PostAdapter mPostAdapter;
 
     private final Handler mHandler = new Handler(Looper.getMainLooper());
@@ -141,14 +140,16 @@ public class PostListActivity extends BaseActivity {
         mPostAdapter = new PostAdapter(this, mPosts, getBlogUrl(), getPicasso(), v -> {
             int pos = mPostList.getChildLayoutPosition(v);
             if (pos == RecyclerView.NO_POSITION) return;
-            Post post = (Post) mPostAdapter.getItem(pos);
+            PostSummary post = mPostAdapter.getItem(pos);
             if (post.isMarkedForDeletion()) {
                 Snackbar.make(mPostList, R.string.status_marked_for_deletion_open_error,
                         Snackbar.LENGTH_SHORT).show();
                 return;
             }
+            // the list only holds summaries, the full post is loaded by PostViewActivity
             Intent intent = new Intent(PostListActivity.this, PostViewActivity.class);
-            intent.putExtra(BundleKeys.POST, post);
+            intent.putExtra(BundleKeys.POST_UUID, post.getUuid());
+            intent.putExtra(BundleKeys.POST_TITLE, post.getTitle());
             intent.putExtra(BundleKeys.FILE_STORAGE_ENABLED, mFileStorageEnabled);
             intent.putExtra(BundleKeys.START_EDITING, false);
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
@@ -244,6 +245,8 @@ public class PostListActivity extends BaseActivity {
     public boolean onCreateOptionsMenu(Menu menu) {
         super.onCreateOptionsMenu(menu);
         getMenuInflater().inflate(R.menu.post_list, menu);
+        menu.findItem(R.id.action_resize_images).setChecked(UserPrefs.getInstance(this)
+                .getBoolean(UserPrefs.Key.RESIZE_IMAGES_BEFORE_UPLOAD));
         return true;
     }
 
@@ -256,6 +259,13 @@ public class PostListActivity extends BaseActivity {
             case R.id.action_refresh:
                 refreshData(false);
                 return true;
+            case R.id.action_resize_images:
+                // photographers may want to upload their images at full quality
+                boolean resizeImages = ! item.isChecked();
+                item.setChecked(resizeImages);
+                UserPrefs.getInstance(this).setBoolean(UserPrefs.Key.RESIZE_IMAGES_BEFORE_UPLOAD,
+                        resizeImages);
+                return true;
             case R.id.action_feedback:
                 AppUtils.emailDeveloper(this);
                 return true;
@@ -358,14 +368,6 @@ public class PostListActivity extends BaseActivity {
         }
         mPosts.clear();
         mPosts.addAll(event.posts);
-        if (mPosts.size() >= event.postsFetchLimit) {
-            CharSequence message = Html.fromHtml(getString(R.string.post_limit_exceeded,
-                    getString(R.string.app_name), event.postsFetchLimit,
-                    "https://github.com/vickychijwani/quill/issues/81"));
-            mPostAdapter.showFooter(message);
-        } else {
-            mPostAdapter.hideFooter();
-        }
         mPostAdapter.notifyDataSetChanged();
     }
 
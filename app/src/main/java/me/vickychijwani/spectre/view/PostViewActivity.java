@@ -49,8 +49,11 @@ import io.reactivex.functions.Consumer;
 import io.realm.RealmList;
 import me.vickychijwani.spectre.R;
 import me.vickychijwani.spectre.event.DeletePostEvent;
+import me.vickychijwani.spectre.event.LoadPostEvent;
 import me.vickychijwani.spectre.event.LoadTagsEvent;
 import me.vickychijwani.spectre.event.PostDeletedEvent;
+import me.vickychijwani.spectre.event.PostLoadErrorEvent;
+import me.vickychijwani.spectre.event.PostLoadedEvent;
 import me.vickychijwani.spectre.event.PostReplacedEvent;
 import me.vickychijwani.spectre.event.PostSavedEvent;
 import me.vickychijwani.spectre.event.PostSyncedEvent;
@@ -82,13 +85,17 @@ public class PostViewActivity extends BaseActivity implements
     @Bind(R.id.view_pager)                      ViewPager mViewPager;
     @Bind(R.id.drawer_layout)                   DrawerLayout mDrawerLayout;
     @Bind(R.id.nav_view)                        NavigationView mNavView;
+    @Bind(R.id.post_loading)                    ProgressBar mPostLoadingView;
 
     private FormattingToolbarManager mFormattingToolbarManager = null;
     private PostImageLayoutManager mPostImageLayoutManager = null;
     private ChipsEditText mPostTagsEditText;
     private CheckBox mPostFeatureCheckBox;
 
+    // null until the content of the post has been loaded, see mPostUuid
     private Post mPost;
+    private String mPostUuid;
+    @PostViewFragmentPagerAdapter.TabPosition private int mStartingTabPosition;
     private PostViewFragment mPostViewFragment;
     private PostEditFragment mPostEditFragment;
 
@@ -175,30 +182,48 @@ public class PostViewActivity extends BaseActivity implements
         } else {
             bundle = getIntent().getExtras();
         }
-        mPost = bundle.getParcelable(BundleKeys.POST);
-        //noinspection ConstantConditions
-        Crashlytics.log(Log.DEBUG, TAG, "[onCreate] post id = " + mPost.getId());
 
-        @PostViewFragmentPagerAdapter.TabPosition int startingTabPosition =
-                PostViewFragmentPagerAdapter.TAB_POSITION_PREVIEW;
+        mStartingTabPosition = PostViewFragmentPagerAdapter.TAB_POSITION_PREVIEW;
         if (bundle.getBoolean(BundleKeys.START_EDITING)) {
-            startingTabPosition = PostViewFragmentPagerAdapter.TAB_POSITION_EDIT;
+            mStartingTabPosition = PostViewFragmentPagerAdapter.TAB_POSITION_EDIT;
         } else {
             // hide the formatting toolbar in the preview
             mFormattingToolbarManager.hide();
         }
         mbFileStorageEnabled = bundle.getBoolean(BundleKeys.FILE_STORAGE_ENABLED);
+        mPostImageLayoutManager.setOnClickListener(this);
+
+        getBus().post(new LoadTagsEvent());
+
+        mPost = bundle.getParcelable(BundleKeys.POST);
+        if (mPost != null) {
+            mPostUuid = mPost.getUuid();
+            showPost();
+        } else {
+            // opened from the post list, which only has a summary of the post: show what we
+            // have right away, and the rest once it's loaded (possibly from the network)
+            mPostUuid = bundle.getString(BundleKeys.POST_UUID);
+            Crashlytics.log(Log.DEBUG, TAG, "[onCreate] loading post uuid = " + mPostUuid);
+            setTitle(bundle.getString(BundleKeys.POST_TITLE));
+            mPostLoadingView.setVisibility(View.VISIBLE);
+            mDrawerLayout.setDrawerLockMode(DrawerLayout.LOCK_MODE_LOCKED_CLOSED);
+            getBus().post(new LoadPostEvent(mPostUuid));
+        }
+    }
+
+    private void showPost() {
+        Crashlytics.log(Log.DEBUG, TAG, "[showPost] post id = " + mPost.getId());
+        mPostLoadingView.setVisibility(View.GONE);
+        mDrawerLayout.setDrawerLockMode(DrawerLayout.LOCK_MODE_UNLOCKED);
         mViewPager.setAdapter(new PostViewFragmentPagerAdapter(this, getSupportFragmentManager(),
                 mPost, mbFileStorageEnabled, this));
         mViewPager.removeOnPageChangeListener(this);
         mViewPager.addOnPageChangeListener(this);
-        mViewPager.setCurrentItem(startingTabPosition);
+        mViewPager.setCurrentItem(mStartingTabPosition);
         mTabLayout.setupWithViewPager(mViewPager);
         mTabLayout.addOnTabSelectedListener(this);
         updatePostSettings();
-        mPostImageLayoutManager.setOnClickListener(this);
-
-        getBus().post(new LoadTagsEvent());
+        supportInvalidateOptionsMenu();
     }
 
     @Override
@@ -207,9 +232,14 @@ public class PostViewActivity extends BaseActivity implements
         // if the post is replaced (e.g., right after new post creation) followed by an
         // orientation change, make sure we have the updated post after being re-created
         outState.putParcelable(BundleKeys.POST, mPost);
+        outState.putString(BundleKeys.POST_UUID, mPostUuid);
+        outState.putString(BundleKeys.POST_TITLE, mToolbarTitle.getText().toString());
         outState.putBoolean(BundleKeys.FILE_STORAGE_ENABLED, mbFileStorageEnabled);
+        int currentTabPosition = (mPost != null)
+                ? mViewPager.getCurrentItem()
+                : mStartingTabPosition;
         outState.putBoolean(BundleKeys.START_EDITING,
-                mViewPager.getCurrentItem() == PostViewFragmentPagerAdapter.TAB_POSITION_EDIT);
+                currentTabPosition == PostViewFragmentPagerAdapter.TAB_POSITION_EDIT);
     }
 
     @Override
@@ -249,6 +279,10 @@ public class PostViewActivity extends BaseActivity implements
 
     @Override
     public boolean onPrepareOptionsMenu(Menu menu) {
+        if (mPost == null) {
+            // no actions until the post is loaded
+            return false;
+        }
         MenuItem publishItem = menu.findItem(R.id.action_publish);
         MenuItem unpublishItem = menu.findItem(R.id.action_unpublish);
         publishItem.setTitle(mPost.isDraft() ? R.string.publish : R.string.update_post);
@@ -336,8 +370,29 @@ public class PostViewActivity extends BaseActivity implements
         alertDialog.show();
     }
 
+    @Subscribe
+    public void onPostLoadedEvent(PostLoadedEvent event) {
+        if (mPost != null || ! event.post.getUuid().equals(mPostUuid)) {
+            return;
+        }
+        mPost = event.post;
+        showPost();
+    }
+
+    @Subscribe
+    public void onPostLoadErrorEvent(PostLoadErrorEvent event) {
+        if (mPost != null || ! event.uuid.equals(mPostUuid)) {
+            return;
+        }
+        Toast.makeText(this, R.string.load_post_failed, Toast.LENGTH_LONG).show();
+        finish();
+    }
+
     @Subscribe
     public void onPostSyncedEvent(PostSyncedEvent event) {
+        if (mPost == null) {
+            return;
+        }
         if (event.uuid.equals(mPost.getUuid()) && mbPreviewPost) {
             mHandler.removeCallbacks(mSaveTimeoutRunnable);
             startBrowserActivity(PostUtils.getPostUrl(mPost));
@@ -366,13 +421,16 @@ public class PostViewActivity extends BaseActivity implements
 
     @Subscribe
     public void onPostReplacedEvent(PostReplacedEvent event) {
+        if (mPost == null) {
+            return;
+        }
         // FIXME check which post changed before blindly assigning to mPost!
         updatePost(event.newPost);
     }
 
     @Subscribe
     public void onPostSavedEvent(PostSavedEvent event) {
-        if (! mPost.getUuid().equals(event.post.getUuid())) {
+        if (mPost == null || ! mPost.getUuid().equals(event.post.getUuid())) {
             return;
         }
         updatePost(event.post);
@@ -380,6 +438,9 @@ public class PostViewActivity extends BaseActivity implements
 
     @Subscribe
     public void onPostDeletedEvent(PostDeletedEvent event) {
+        if (mPost == null) {
+            return;
+        }
         if (event.postId != mPost.getId()) {
             RuntimeException e = new IllegalArgumentException("Received post deleted event for id = "
                     + event.postId + ", current id = " + mPost.getId());
@@ -455,7 +516,9 @@ public class PostViewActivity extends BaseActivity implements
                 if (item.getItemId() == R.id.action_insert_image_url) {
                     mPostEditFragment.onInsertImageUrlClicked(getInsertImageDoneAction());
                 } else if (item.getItemId() == R.id.action_insert_image_upload) {
-                    mPostEditFragment.onInsertImageUploadClicked(getInsertImageDoneAction());
+                    // only one cover image
+                    mPostEditFragment.onInsertImageUploadClicked(
+                            (urls) -> getInsertImageDoneAction().call(urls.get(0)), false);
                 } else if (item.getItemId() == R.id.action_image_remove) {
                     getInsertImageDoneAction().call("");
                 }
@@ -4,9 +4,12 @@ import android.Manifest;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.ProgressDialog;
+import android.content.ClipData;
+import android.content.ContentResolver;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -17,6 +20,7 @@ import android.support.design.widget.Snackbar;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.widget.PopupMenu;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -34,7 +38,11 @@ import com.crashlytics.android.Crashlytics;
 import com.github.slugify.Slugify;
 import com.squareup.otto.Subscribe;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
 
 import butterknife.Bind;
 import butterknife.ButterKnife;
@@ -48,6 +56,7 @@ import me.vickychijwani.spectre.analytics.AnalyticsService;
 import me.vickychijwani.spectre.error.FileUploadFailedException;
 import me.vickychijwani.spectre.event.FileUploadErrorEvent;
 import me.vickychijwani.spectre.event.FileUploadEvent;
+import me.vickychijwani.spectre.event.FileUploadProgressEvent;
 import me.vickychijwani.spectre.event.FileUploadedEvent;
 import me.vickychijwani.spectre.event.PostSavedEvent;
 import me.vickychijwani.spectre.event.PostSyncedEvent;
@@ -55,13 +64,16 @@ import me.vickychijwani.spectre.event.SavePostEvent;
 import me.vickychijwani.spectre.model.entity.PendingAction;
 import me.vickychijwani.spectre.model.entity.Post;
 import me.vickychijwani.spectre.model.entity.Tag;
-import me.vickychijwani.spectre.network.ApiFailure;
+import me.vickychijwani.spectre.pref.UserPrefs;
 import me.vickychijwani.spectre.util.functions.Action1;
 import me.vickychijwani.spectre.util.AppUtils;
 import me.vickychijwani.spectre.util.EditTextSelectionState;
 import me.vickychijwani.spectre.util.EditTextUtils;
+import me.vickychijwani.spectre.util.ImageUtils;
 import me.vickychijwani.spectre.util.KeyboardUtils;
+import me.vickychijwani.spectre.util.NetworkUtils;
 import me.vickychijwani.spectre.util.PostUtils;
+import me.vickychijwani.spectre.util.UploadBatchProgress;
 import me.vickychijwani.spectre.view.BundleKeys;
 import me.vickychijwani.spectre.view.FormatOptionClickListener;
 import me.vickychijwani.spectre.view.Observables;
@@ -119,9 +131,11 @@ public class PostEditFragment extends BaseFragment implements
     private static final int REQUEST_CODE_IMAGE_PICK = 1;
     private Disposable mUploadDisposable = null;
     private ProgressDialog mUploadProgress = null;
+    // images whose upload progress is being shown, identified by their placeholder URLs
+    private UploadBatchProgress mUploadBatch = null;
     private EditTextSelectionState mMarkdownEditSelectionState;
     private boolean mbFileStorageEnabled = true;
-    private Action1<String> mImageUploadDoneAction = null;
+    private Action1<List<String>> mImageUploadDoneAction = null;
 
 
     @SuppressWarnings("unused")
@@ -214,32 +228,23 @@ public class PostEditFragment extends BaseFragment implements
         // remove pending callbacks
         mHandler.removeCallbacks(mSaveTimeoutRunnable);
         // persist changes to disk, unless the user opted to discard those changes
-        // workaround: do this ONLY if an image upload is NOT in progress - this is to avoid saving
-        // the post prematurely and generating a spurious conflict that cannot be dealt with cleanly
-        // because the post gets uploaded after this Activity goes away, putting it out-of-sync with
-        // the model
-        if (mImageUploadDoneAction == null) {
-            saveAutomatically();
-        } else {
-            // we still need to save to memory, else the post will revert to its original state!
-            saveToMemory();
-        }
+        // images being uploaded are referred to by a placeholder, which is replaced in the saved
+        // post once the upload is done, and the post isn't synced until then
+        saveAutomatically();
         // save misc editor state because setPost is called in onResume
         mPostEditViewCursorPos = mPostEditView.getSelectionEnd();
 
         // must call super method AFTER saving, else we won't get the PostSavedEvent reply!
         super.onPause();
 
-        // unsubscribe from observable and hide progress bar
+        // unsubscribe from observable and hide progress bar; an image that was already added to
+        // the upload outbox is uploaded in the background regardless
         if (mUploadDisposable != null && !mUploadDisposable.isDisposed()) {
             mUploadDisposable.dispose();
             mUploadDisposable = null;
             Toast.makeText(mActivity, R.string.image_upload_failed, Toast.LENGTH_SHORT).show();
         }
-        if (mUploadProgress != null) {
-            mUploadProgress.dismiss();
-            mUploadProgress = null;
-        }
+        dismissUploadProgress();
     }
 
     @Override
@@ -349,16 +354,17 @@ public class PostEditFragment extends BaseFragment implements
 
         popupMenu.setOnMenuItemClickListener(item -> {
             mMarkdownEditSelectionState = new EditTextSelectionState(mPostEditView);
-            Action1<String> insertMarkdownAction = (imageUrl) -> {
-                EditTextUtils.insertMarkdownImageMarkers(imageUrl, mMarkdownEditSelectionState);
-            };
             if (item.getItemId() == R.id.action_insert_image_url) {
-                onInsertImageUrlClicked(insertMarkdownAction);
+                onInsertImageUrlClicked((imageUrl) -> {
+                    EditTextUtils.insertMarkdownImageMarkers(imageUrl, mMarkdownEditSelectionState);
+                });
             } else if (item.getItemId() == R.id.action_insert_image_upload) {
                 // the *WithCheck() method checks for runtime permissions and
                 // is generated by the PermissionsDispatcher library
                 PostEditFragmentPermissionsDispatcher.onInsertImageUploadClickedWithCheck(this,
-                        insertMarkdownAction);
+                        (imageUrls) -> {
+                            EditTextUtils.insertMarkdownImageMarkers(imageUrls, mMarkdownEditSelectionState);
+                        }, true);
             }
             return true;
         });
@@ -414,11 +420,14 @@ public class PostEditFragment extends BaseFragment implements
 
     @SuppressLint("InlinedApi") // suppressed because PermissionsDispatcher handles API levels for us
     @NeedsPermission(Manifest.permission.READ_EXTERNAL_STORAGE)
-    public void onInsertImageUploadClicked(Action1<String> uploadDoneAction) {
+    public void onInsertImageUploadClicked(Action1<List<String>> uploadDoneAction,
+                                           boolean allowMultiple) {
         mImageUploadDoneAction = uploadDoneAction;
         Intent imagePickIntent = new Intent(Intent.ACTION_GET_CONTENT);
         imagePickIntent.addCategory(Intent.CATEGORY_OPENABLE);
         imagePickIntent.setType("image/*");
+        // ignored before API 18, in which case only one image can be picked
+        imagePickIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, allowMultiple);
         if (imagePickIntent.resolveActivity(mActivity.getPackageManager()) != null) {
             startActivityForResult(imagePickIntent, REQUEST_CODE_IMAGE_PICK);
         } else {
@@ -441,72 +450,238 @@ public class PostEditFragment extends BaseFragment implements
 
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent result) {
-        if (result == null || result.getData() == null || resultCode != Activity.RESULT_OK) {
+        if (result == null || resultCode != Activity.RESULT_OK) {
             return;
         }
         if (requestCode == REQUEST_CODE_IMAGE_PICK) {
-            uploadImage(result.getData());
+            List<Uri> uris = getPickedImageUris(result);
+            if (! uris.isEmpty()) {
+                uploadImages(uris);
+            }
         }
     }
 
-    public void uploadImage(@NonNull Uri uri) {
+    // in the order they were picked
+    private static List<Uri> getPickedImageUris(@NonNull Intent result) {
+        List<Uri> uris = new ArrayList<>();
+        ClipData clipData = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+                ? result.getClipData() : null;
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); ++i) {
+                Uri uri = clipData.getItemAt(i).getUri();
+                if (uri != null) {
+                    uris.add(uri);
+                }
+            }
+        } else if (result.getData() != null) {
+            uris.add(result.getData());
+        }
+        return uris;
+    }
+
+    public void uploadImages(@NonNull List<Uri> uris) {
         if (mUploadDisposable != null && !mUploadDisposable.isDisposed()) {
             mUploadDisposable.dispose();
             mUploadDisposable = null;
         }
 
-        mUploadProgress = ProgressDialog.show(mActivity, null,
-                mActivity.getString(R.string.uploading), true, false);
-
-        mUploadDisposable = Observables
-                .getFileUploadMetadataFromUri(mActivity.getContentResolver(), uri)
+        // indeterminate until the size of a file is known, see onFileUploadProgressEvent
+        mUploadProgress = new ProgressDialog(mActivity);
+        mUploadProgress.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        mUploadProgress.setMessage(mActivity.getString(R.string.uploading));
+        mUploadProgress.setIndeterminate(true);
+        mUploadProgress.setProgressNumberFormat(null);
+        mUploadProgress.setMax(100);
+        mUploadProgress.setCancelable(false);
+        mUploadProgress.show();
+
+        ContentResolver contentResolver = mActivity.getContentResolver();
+        mUploadDisposable = Observable.fromIterable(uris)
+                // one at a time, because decoding an image for resizing takes a lot of memory
+                .concatMap(uri -> Observables.getFileUploadMimeTypeFromUri(contentResolver, uri)
+                        .map(mimeType -> makeFileUploadEvent(uri, mimeType))
+                        // skip an image that can't be read instead of giving up on all of them
+                        .doOnError(error -> Crashlytics.logException(new FileUploadFailedException(error)))
+                        .onErrorResumeNext(Observable.<FileUploadEvent>empty()))
+                .toList()
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe((pair) -> {
-                    getBus().post(new FileUploadEvent(pair.first, pair.second));
+                .subscribe((fileUploadEvents) -> {
+                    mUploadDisposable = null;
+                    if (fileUploadEvents.size() < uris.size()) {
+                        Toast.makeText(mActivity, R.string.image_upload_failed, Toast.LENGTH_SHORT).show();
+                    }
+                    if (fileUploadEvents.isEmpty()) {
+                        dismissUploadProgress();
+                        mImageUploadDoneAction = null;
+                        mMarkdownEditSelectionState = null;
+                        return;
+                    }
+                    List<String> placeholderUrls = new ArrayList<>(fileUploadEvents.size());
+                    for (FileUploadEvent fileUploadEvent : fileUploadEvents) {
+                        placeholderUrls.add(fileUploadEvent.placeholderUrl);
+                    }
+                    // insert the images right away with local URLs, which are replaced as the
+                    // images are uploaded, so the post can be edited and saved in the meantime
+                    if (mImageUploadDoneAction != null) {
+                        mImageUploadDoneAction.call(placeholderUrls);
+                        mImageUploadDoneAction = null;
+                    }
+                    mMarkdownEditSelectionState = null;
+                    for (FileUploadEvent fileUploadEvent : fileUploadEvents) {
+                        getBus().post(fileUploadEvent);
+                    }
+                    if (NetworkUtils.isConnected(mActivity)) {
+                        // nothing to wait for, the uploads carry on if the dialog is dismissed
+                        mUploadBatch = new UploadBatchProgress(placeholderUrls);
+                        mUploadProgress.setCancelable(true);
+                        updateUploadProgress();
+                    } else {
+                        dismissUploadProgress();
+                        Toast.makeText(mActivity, R.string.image_upload_queued, Toast.LENGTH_SHORT).show();
+                    }
                 }, (error) -> {
-                    onFileUploadErrorEvent(new FileUploadErrorEvent(new ApiFailure(error)));
-                }, () -> {
                     mUploadDisposable = null;
+                    Crashlytics.logException(new FileUploadFailedException(error));
+                    Toast.makeText(mActivity, R.string.image_upload_failed, Toast.LENGTH_SHORT).show();
+                    dismissUploadProgress();
+                    mImageUploadDoneAction = null;
+                    mMarkdownEditSelectionState = null;
                 });
     }
 
+    // called on a background thread, because copying and resizing the image can take a while
+    private FileUploadEvent makeFileUploadEvent(@NonNull Uri uri, @NonNull String mimeType)
+            throws IOException {
+        UserPrefs prefs = UserPrefs.getInstance(mActivity);
+        File file = null;
+        String fileMimeType = mimeType;
+        if (prefs.getBoolean(UserPrefs.Key.RESIZE_IMAGES_BEFORE_UPLOAD)) {
+            ImageUtils.ResizedImage resized = ImageUtils.resizeForUpload(mActivity, uri, mimeType,
+                    prefs.getInteger(UserPrefs.Key.UPLOAD_IMAGE_MAX_SIZE),
+                    prefs.getInteger(UserPrefs.Key.UPLOAD_IMAGE_QUALITY));
+            if (resized != null) {
+                file = resized.file;
+                fileMimeType = resized.mimeType;
+            }
+        }
+        if (file == null) {
+            file = ImageUtils.copyForUpload(mActivity, uri, mimeType);
+        }
+        return new FileUploadEvent(file.getAbsolutePath(), fileMimeType,
+                Uri.fromFile(file).toString());
+    }
+
     @Subscribe
-    public void onFileUploadedEvent(FileUploadedEvent event) {
+    public void onFileUploadProgressEvent(FileUploadProgressEvent event) {
         // the activity could have been destroyed and re-created
-        if (mUploadProgress != null) {
-            mUploadProgress.dismiss();
-            mUploadProgress = null;
+        if (mUploadBatch == null) {
+            return;
         }
-        // the activity could have been destroyed and re-created
-        if (mImageUploadDoneAction != null) {
-            mImageUploadDoneAction.call(event.relativeUrl);
-            mImageUploadDoneAction = null;
+        mUploadBatch.setProgress(event.placeholderUrl, event.bytesUploaded, event.totalBytes);
+        updateUploadProgress();
+    }
+
+    @Subscribe
+    public void onFileUploadedEvent(FileUploadedEvent event) {
+        // this may be an image inserted earlier (e.g., while offline), not just one whose
+        // progress is being shown
+        Editable markdown = mPostEditView.getText();
+        int start;
+        while ((start = TextUtils.indexOf(markdown, event.placeholderUrl)) >= 0) {
+            markdown.replace(start, start + event.placeholderUrl.length(), event.relativeUrl);
+        }
+        if (event.placeholderUrl.equals(mPost.getImage())) {
+            mPost.setImage(event.relativeUrl);
+        }
+        if (mUploadBatch != null && mUploadBatch.contains(event.placeholderUrl)) {
+            mUploadBatch.setDone(event.placeholderUrl);
+            updateUploadProgress();
+            if (mUploadBatch.isDone()) {
+                dismissUploadProgress();
+                KeyboardUtils.focusAndShowKeyboard(mActivity, mPostEditView);
+            }
         }
-        mMarkdownEditSelectionState = null;
-        KeyboardUtils.focusAndShowKeyboard(mActivity, mPostEditView);
     }
 
     @Subscribe
     public void onFileUploadErrorEvent(FileUploadErrorEvent event) {
-        if (event.apiFailure.error != null) {
-            Crashlytics.logException(new FileUploadFailedException(event.apiFailure.error));
-        } else if (event.apiFailure.response != null) {
-            try {
-                String responseStr = event.apiFailure.response.errorBody().string();
-                Crashlytics.logException(new FileUploadFailedException(responseStr));
-            } catch (IOException e) {
-                Log.e(TAG, Log.getStackTraceString(e));
+        boolean isShowingProgress = (mUploadBatch != null
+                && mUploadBatch.contains(event.placeholderUrl));
+        if (event.willRetry && ! isShowingProgress) {
+            return;     // retried quietly in the background
+        }
+        if (! event.willRetry) {
+            removeImage(event.placeholderUrl);
+            if (event.apiFailure.error != null) {
+                Crashlytics.logException(new FileUploadFailedException(event.apiFailure.error));
+            } else if (event.apiFailure.response != null) {
+                try {
+                    String responseStr = event.apiFailure.response.errorBody().string();
+                    Crashlytics.logException(new FileUploadFailedException(responseStr));
+                } catch (IOException e) {
+                    Log.e(TAG, Log.getStackTraceString(e));
+                }
             }
         }
-        Toast.makeText(mActivity, R.string.image_upload_failed, Toast.LENGTH_SHORT).show();
+        Toast.makeText(mActivity, event.willRetry ? R.string.image_upload_queued
+                : R.string.image_upload_failed, Toast.LENGTH_SHORT).show();
+        if (! isShowingProgress) {
+            return;
+        }
+        if (event.willRetry) {
+            // the rest of the batch carries on in the background too, with no more toasts
+            dismissUploadProgress();
+        } else {
+            mUploadBatch.setDone(event.placeholderUrl);
+            updateUploadProgress();
+            if (mUploadBatch.isDone()) {
+                dismissUploadProgress();
+            }
+        }
+    }
+
+    // the image won't ever be uploaded, so remove it before the post is saved with a placeholder
+    // that's only meaningful on this device
+    private void removeImage(@NonNull String placeholderUrl) {
+        Editable markdown = mPostEditView.getText();
+        Matcher matcher = PostUtils.makeImageMarkdownPattern(placeholderUrl).matcher(markdown);
+        while (matcher.find()) {
+            markdown.delete(matcher.start(), matcher.end());
+            matcher.reset(markdown);
+        }
+        int start;
+        while ((start = TextUtils.indexOf(markdown, placeholderUrl)) >= 0) {
+            markdown.delete(start, start + placeholderUrl.length());
+        }
+        if (placeholderUrl.equals(mPost.getImage())) {
+            mPost.setImage(null);
+        }
+    }
+
+    private void updateUploadProgress() {
+        // the activity could have been destroyed and re-created
+        if (mUploadProgress == null || mUploadBatch == null) {
+            return;
+        }
+        if (mUploadBatch.getCount() > 1) {
+            mUploadProgress.setMessage(mActivity.getString(R.string.uploading_images,
+                    mUploadBatch.getDoneCount(), mUploadBatch.getCount()));
+        }
+        int percent = mUploadBatch.getPercent();
+        if (percent > 0) {
+            mUploadProgress.setIndeterminate(false);
+            mUploadProgress.setProgress(percent);
+        }
+    }
+
+    private void dismissUploadProgress() {
         // the activity could have been destroyed and re-created
         if (mUploadProgress != null) {
             mUploadProgress.dismiss();
             mUploadProgress = null;
         }
-        mImageUploadDoneAction = null;
-        mMarkdownEditSelectionState = null;
+        mUploadBatch = null;
     }
 
     private boolean saveToServerExplicitly() {
@@ -0,0 +1,50 @@
+package me.vickychijwani.spectre.model.entity;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import me.vickychijwani.spectre.util.DateTimeUtils;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: tests for the denormalized sort key, which must match the main post list's sort order
+ */
+
+public final class PostTest {
+
+    private static final Date OLD = new Date(1_000_000_000_000L);
+    private static final Date NEW = new Date(1_400_000_000_000L);
+
+    @Test
+    public void computeSortKey_groupsInListOrder() {
+        long newPost = Post.computeSortKey(true, Post.DRAFT, null, OLD, OLD);
+        long scheduled = Post.computeSortKey(false, Post.SCHEDULED, NEW, NEW, NEW);
+        long draft = Post.computeSortKey(false, Post.DRAFT, DateTimeUtils.FAR_FUTURE, NEW, NEW);
+        long published = Post.computeSortKey(false, Post.PUBLISHED, NEW, NEW, NEW);
+
+        // the list is sorted in descending order of the key
+        assertThat(newPost, greaterThan(scheduled));
+        assertThat(scheduled, greaterThan(draft));
+        assertThat(draft, greaterThan(published));
+    }
+
+    @Test
+    public void computeSortKey_newestFirstWithinGroup() {
+        // drafts are sorted by date modified, even though their publishedAt is FAR_FUTURE
+        assertThat(Post.computeSortKey(false, Post.DRAFT, DateTimeUtils.FAR_FUTURE, NEW, OLD),
+                greaterThan(Post.computeSortKey(false, Post.DRAFT, DateTimeUtils.FAR_FUTURE, OLD, OLD)));
+        // published posts are sorted by date published
+        assertThat(Post.computeSortKey(false, Post.PUBLISHED, NEW, OLD, OLD),
+                greaterThan(Post.computeSortKey(false, Post.PUBLISHED, OLD, NEW, NEW)));
+    }
+
+    @Test
+    public void computeSortKey_fallsBackToCreationDate() {
+        assertThat(Post.computeSortKey(false, Post.PUBLISHED, null, null, NEW),
+                greaterThan(Post.computeSortKey(false, Post.PUBLISHED, null, null, OLD)));
+    }
+
+}
@@ -0,0 +1,52 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: unit tests for when access tokens are refreshed in the background
+ */
+
+public final class AccessTokenRefreshPolicyTest {
+
+    private static final long CREATED_AT = 1_000_000;
+
+    @Test
+    public void getRefreshAt_afterMostOfTheLifetime() {
+        // Ghost access tokens last an hour, refresh 12 minutes before that
+        assertThat(AccessTokenRefreshPolicy.getRefreshAt(CREATED_AT, 3600), is(CREATED_AT + 2880));
+    }
+
+    @Test
+    public void getRefreshAt_shortLifetimeKeepsMinLeadTime() {
+        assertThat(AccessTokenRefreshPolicy.getRefreshAt(CREATED_AT, 300),
+                is(CREATED_AT + 300 - AccessTokenRefreshPolicy.MIN_LEAD_TIME));
+        assertThat(AccessTokenRefreshPolicy.getRefreshAt(CREATED_AT, 60), is(CREATED_AT));
+    }
+
+    @Test
+    public void shouldRefresh() {
+        assertThat(AccessTokenRefreshPolicy.shouldRefresh(CREATED_AT + 2879, CREATED_AT, 3600), is(false));
+        assertThat(AccessTokenRefreshPolicy.shouldRefresh(CREATED_AT + 2880, CREATED_AT, 3600), is(true));
+        assertThat(AccessTokenRefreshPolicy.shouldRefresh(CREATED_AT + 4000, CREATED_AT, 3600), is(true));
+    }
+
+    @Test
+    public void getRefreshDelay() {
+        assertThat(AccessTokenRefreshPolicy.getRefreshDelay(CREATED_AT, CREATED_AT, 3600), is(2880L));
+        assertThat(AccessTokenRefreshPolicy.getRefreshDelay(CREATED_AT + 2000, CREATED_AT, 3600), is(880L));
+        // already due, e.g., the app was started long after the token was issued
+        assertThat(AccessTokenRefreshPolicy.getRefreshDelay(CREATED_AT + 5000, CREATED_AT, 3600), is(0L));
+    }
+
+    @Test
+    public void getRetryDelay_neverPastExpiry() {
+        assertThat(AccessTokenRefreshPolicy.getRetryDelay(CREATED_AT + 2880, CREATED_AT, 3600),
+                is(AccessTokenRefreshPolicy.RETRY_DELAY));
+        assertThat(AccessTokenRefreshPolicy.getRetryDelay(CREATED_AT + 3570, CREATED_AT, 3600), is(30L));
+        assertThat(AccessTokenRefreshPolicy.getRetryDelay(CREATED_AT + 4000, CREATED_AT, 3600), is(0L));
+    }
+
+}
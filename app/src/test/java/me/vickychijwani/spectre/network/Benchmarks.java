@@ -0,0 +1,44 @@
+package me.vickychijwani.spectre.network;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Helpers for the *Benchmark classes in this package, which compare an optimized code path against
+ * the one it replaced. They're @Ignore'd so they don't slow down (or make flaky) the unit test run;
+ * remove the @Ignore locally to run one. Timings are logged, never asserted, because they depend on
+ * the machine.
+ */
+final class Benchmarks {
+
+    interface Task {
+        void run() throws Exception;
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(Benchmarks.class.getSimpleName());
+    // runs before measuring, to let the JIT compile the code under test
+    private static final int NUM_WARMUP_RUNS = 5;
+
+    private Benchmarks() {}
+
+    /**
+     * @return the average time taken by the task, in milliseconds (after warming up)
+     */
+    static double measureMillis(int numRuns, Task task) throws Exception {
+        for (int i = 0; i < NUM_WARMUP_RUNS; ++i) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < numRuns; ++i) {
+            task.run();
+        }
+        return (double) (System.nanoTime() - start) / numRuns / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    static void report(String what, double oldMillis, double newMillis) {
+        LOGGER.info(String.format(Locale.US, "%s: %.2f ms before, %.2f ms after (%.1fx)", what,
+                oldMillis, newMillis, oldMillis / newMillis));
+    }
+
+}
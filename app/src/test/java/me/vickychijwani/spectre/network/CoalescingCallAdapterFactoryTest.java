@@ -0,0 +1,115 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import me.vickychijwani.spectre.network.entity.UserList;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: check that concurrent identical requests share one network call, and different
+ * requests don't
+ */
+
+public final class CoalescingCallAdapterFactoryTest {
+
+    private static final String USER_JSON = "{\"users\":[{\"id\":1,\"uuid\":\"user-uuid\","
+            + "\"name\":\"Jane\",\"slug\":\"jane\",\"email\":\"jane@example.com\",\"roles\":[]}]}";
+
+    private MockWebServer mServer;
+    private GhostApiService mApi;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mApi = GhostApiUtils.getRetrofit(mServer.url("/").toString(), new OkHttpClient())
+                .create(GhostApiService.class);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void identicalRequests_shareOneNetworkCall() throws InterruptedException {
+        // delay the response so the second call is enqueued while the first is in flight
+        mServer.enqueue(new MockResponse().setBody(USER_JSON).setBodyDelay(500, TimeUnit.MILLISECONDS));
+        List<Response<UserList>> responses = enqueueAll(
+                mApi.getCurrentUser("Bearer token", "etag"),
+                mApi.getCurrentUser("Bearer token", "etag"));
+
+        assertThat(mServer.getRequestCount(), is(1));
+        for (Response<UserList> response : responses) {
+            assertThat(response.body().users.get(0).getName(), is("Jane"));
+        }
+    }
+
+    @Test
+    public void identicalRequests_eachGetTheirOwnErrorBody() throws InterruptedException, IOException {
+        mServer.enqueue(new MockResponse().setResponseCode(500).setBody("oops")
+                .setBodyDelay(500, TimeUnit.MILLISECONDS));
+        List<Response<UserList>> responses = enqueueAll(
+                mApi.getCurrentUser("Bearer token", null),
+                mApi.getCurrentUser("Bearer token", null));
+
+        assertThat(mServer.getRequestCount(), is(1));
+        for (Response<UserList> response : responses) {
+            assertThat(response.errorBody().string(), is("oops"));
+        }
+    }
+
+    @Test
+    public void differentRequests_areNotShared() throws InterruptedException {
+        mServer.enqueue(new MockResponse().setBody(USER_JSON).setBodyDelay(500, TimeUnit.MILLISECONDS));
+        mServer.enqueue(new MockResponse().setBody(USER_JSON).setBodyDelay(500, TimeUnit.MILLISECONDS));
+        enqueueAll(
+                mApi.getCurrentUser("Bearer token", "etag-1"),
+                mApi.getCurrentUser("Bearer token", "etag-2"));
+
+        assertThat(mServer.getRequestCount(), is(2));
+    }
+
+
+    // helpers
+    @SafeVarargs
+    private static <T> List<Response<T>> enqueueAll(Call<T>... calls) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(calls.length);
+        List<Response<T>> responses = Collections.synchronizedList(new ArrayList<>());
+        for (Call<T> call : calls) {
+            call.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> call, Response<T> response) {
+                    responses.add(response);
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<T> call, Throwable error) {
+                    latch.countDown();
+                }
+            });
+        }
+        assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(responses.size(), is(calls.length));
+        return responses;
+    }
+
+}
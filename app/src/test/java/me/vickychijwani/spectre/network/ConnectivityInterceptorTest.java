@@ -0,0 +1,123 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import me.vickychijwani.spectre.error.NoConnectivityException;
+import okhttp3.Cache;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * PURPOSE: check that requests fail fast or are served from the cache when offline, and that
+ * stale cached responses are used when the network fails
+ */
+
+public final class ConnectivityInterceptorTest {
+
+    @Rule public final TemporaryFolder mCacheDir = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private OkHttpClient mClient;
+    private boolean mIsConnected = true;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mClient = new OkHttpClient.Builder()
+                .cache(new Cache(mCacheDir.getRoot(), 1024 * 1024))
+                .addInterceptor(new ConnectivityInterceptor(() -> mIsConnected))
+                .build();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void offline_getWithoutCachedResponseFailsFast() throws IOException {
+        mIsConnected = false;
+        assertNoConnectivity(get());
+        assertThat(mServer.getRequestCount(), is(0));
+    }
+
+    @Test
+    public void offline_postIsNotSent() throws IOException {
+        mIsConnected = false;
+        assertNoConnectivity(new Request.Builder()
+                .url(mServer.url("/"))
+                .post(RequestBody.create(MediaType.parse("text/plain"), "body"))
+                .build());
+        assertThat(mServer.getRequestCount(), is(0));
+    }
+
+    @Test
+    public void offline_getIsServedFromStaleCache() throws IOException {
+        // max-age=0 means the response is stale right away
+        mServer.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=0").setBody("cached"));
+        execute(get()).body().close();
+
+        mIsConnected = false;
+        Response response = execute(get());
+        assertThat(response.cacheResponse(), notNullValue());
+        assertThat(response.body().string(), is("cached"));
+        assertThat(mServer.getRequestCount(), is(1));
+    }
+
+    @Test
+    public void online_getFallsBackToStaleCacheOnNetworkError() throws IOException {
+        mServer.enqueue(new MockResponse().setHeader("Cache-Control", "max-age=0").setBody("cached"));
+        execute(get()).body().close();
+
+        // OkHttp may retry a failed connection, so make sure every attempt fails
+        for (int i = 0; i < 3; ++i) {
+            mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        }
+        assertThat(execute(get()).body().string(), is("cached"));
+    }
+
+    @Test
+    public void online_getIsSentToTheNetwork() throws IOException {
+        mServer.enqueue(new MockResponse().setBody("fresh"));
+        assertThat(execute(get()).body().string(), is("fresh"));
+        assertThat(mServer.getRequestCount(), is(1));
+    }
+
+
+    // helpers
+    private Request get() {
+        return new Request.Builder().url(mServer.url("/")).build();
+    }
+
+    private Response execute(Request request) throws IOException {
+        return mClient.newCall(request).execute();
+    }
+
+    private void assertNoConnectivity(Request request) throws IOException {
+        try {
+            execute(request).body().close();
+            fail("Expected a NoConnectivityException");
+        } catch (NoConnectivityException expected) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * PURPOSE: compare the hand-written date parser against the previous implementation, which created
+ * a SimpleDateFormat for every date, see {@link Benchmarks}
+ */
+
+@Ignore("benchmark, run manually")
+public final class DateDeserializerBenchmark {
+
+    private static final int NUM_DATES = 100_000;
+    private static final int NUM_RUNS = 5;
+
+    @Test
+    public void parse100kDates() throws Exception {
+        String[] dates = new String[NUM_DATES];
+        for (int i = 0; i < NUM_DATES; ++i) {
+            dates[i] = DateDeserializerTest.DATES[i % DateDeserializerTest.DATES.length];
+        }
+
+        double oldMillis = Benchmarks.measureMillis(NUM_RUNS, () -> {
+            for (String date : dates) {
+                DateDeserializerTest.parseWithSimpleDateFormat(date);
+            }
+        });
+        double newMillis = Benchmarks.measureMillis(NUM_RUNS, () -> {
+            for (String date : dates) {
+                DateDeserializer.parse(date);
+            }
+        });
+
+        Benchmarks.report("Parsing " + NUM_DATES + " dates", oldMillis, newMillis);
+    }
+
+}
@@ -0,0 +1,80 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: check that the hand-written date parser agrees with SimpleDateFormat
+ */
+
+public final class DateDeserializerTest {
+
+    private static final String FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+    private static final int NUM_RANDOM_DATES = 10_000;
+
+    static final String[] DATES = {
+            "1970-01-01T00:00:00.000Z",
+            "2013-10-14T11:08:21.000Z",
+            "2016-02-29T23:59:59.999Z",     // leap day
+            "2000-03-01T00:00:00.001Z",
+            "1969-12-31T23:59:59.999Z",     // before the epoch
+            "2099-12-31T12:34:56.789Z",
+    };
+
+    @Test
+    public void parse_matchesSimpleDateFormat() throws ParseException {
+        for (String date : DATES) {
+            assertThat(DateDeserializer.parse(date), is(parseWithSimpleDateFormat(date)));
+        }
+    }
+
+    @Test
+    public void parse_fractionOfSecondIsOptional() throws ParseException {
+        assertThat(DateDeserializer.parse("2016-05-10T08:00:00Z"),
+                is(parseWithSimpleDateFormat("2016-05-10T08:00:00.000Z")));
+        assertThat(DateDeserializer.parse("2016-05-10T08:00:00.5Z"),
+                is(parseWithSimpleDateFormat("2016-05-10T08:00:00.500Z")));
+    }
+
+    @Test(expected = ParseException.class)
+    public void parse_malformedDate() throws ParseException {
+        DateDeserializer.parse("2016-05-10 08:00:00");
+    }
+
+    @Test(expected = ParseException.class)
+    public void parse_truncatedDate() throws ParseException {
+        DateDeserializer.parse("2016-05-1");
+    }
+
+    @Test
+    public void parse_manyRandomDatesMatchSimpleDateFormat() throws ParseException {
+        SimpleDateFormat formatter = new SimpleDateFormat(FORMAT);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Random random = new Random(42);
+        // 1900 to 2100, roughly
+        long range = TimeUnit.DAYS.toMillis(200 * 365);
+        long min = -TimeUnit.DAYS.toMillis(70 * 365);
+        for (int i = 0; i < NUM_RANDOM_DATES; ++i) {
+            Date expected = new Date(min + (long) (random.nextDouble() * range));
+            assertThat(DateDeserializer.parse(formatter.format(expected)), is(expected));
+        }
+    }
+
+
+    // helpers
+    static Date parseWithSimpleDateFormat(String date) throws ParseException {
+        SimpleDateFormat formatter = new SimpleDateFormat(FORMAT);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return formatter.parse(date);
+    }
+
+}
@@ -11,6 +11,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import java.util.Random;
 
@@ -24,6 +26,7 @@ import me.vickychijwani.spectre.model.entity.User;
 import me.vickychijwani.spectre.network.entity.AuthReqBody;
 import me.vickychijwani.spectre.network.entity.ConfigurationList;
 import me.vickychijwani.spectre.network.entity.PostList;
+import me.vickychijwani.spectre.network.entity.PostManifest;
 import me.vickychijwani.spectre.network.entity.PostStubList;
 import me.vickychijwani.spectre.network.entity.RefreshReqBody;
 import me.vickychijwani.spectre.network.entity.RevokeReqBody;
@@ -205,17 +208,18 @@ public final class GhostApiTest {
     @Test
     public void test_getPosts() {
         Action3<AuthToken, Post, Post> checkPosts = (token, p1, p2) -> {
-            Response<PostList> response = execute(API.getPosts(token.getAuthHeader(), "", 100));
+            Response<PostList> response = execute(API.getPosts(token.getAuthHeader(), null, null, 100, 1));
             List<Post> posts = response.body().posts;
             assertThat(response.code(), is(HTTP_OK));
             assertThat(posts.size(), is(2));
             // posts are returned in reverse-chrono order
             // check latest post
             assertThat(posts.get(0).getTitle(), is(p2.getTitle()));
-            assertThat(posts.get(0).getMarkdown(), is(p2.getMarkdown()));
+            // the list only returns post summaries, without the content
+            assertThat(posts.get(0).getMarkdown(), is(""));
             // check second-last post
             assertThat(posts.get(1).getTitle(), is(p1.getTitle()));
-            assertThat(posts.get(1).getMarkdown(), is(p1.getMarkdown()));
+            assertThat(posts.get(1).getMarkdown(), is(""));
         };
         doWithAuthToken((token, __) -> {
             createRandomPost(token, (post1, r1, cp1) -> {
@@ -230,12 +234,12 @@ public final class GhostApiTest {
     public void test_getPosts_limit() {
         // setting the limit to N should return the *latest* N posts
         Action3<AuthToken, Post, Post> checkPosts = (token, p1, p2) -> {
-            Response<PostList> response = execute(API.getPosts(token.getAuthHeader(), "", 1));
+            Response<PostList> response = execute(API.getPosts(token.getAuthHeader(), null, null, 1, 1));
             List<Post> posts = response.body().posts;
             assertThat(response.code(), is(HTTP_OK));
             assertThat(posts.size(), is(1));
             assertThat(posts.get(0).getTitle(), is(p2.getTitle()));
-            assertThat(posts.get(0).getMarkdown(), is(p2.getMarkdown()));
+            assertThat(posts.get(0).getMarkdown(), is(""));
         };
         doWithAuthToken((token, __) -> {
             createRandomPost(token, (post1, r1, cp1) -> {
@@ -246,6 +250,83 @@ public final class GhostApiTest {
         });
     }
 
+    @Test
+    public void test_getPosts_pagination() {
+        // with a limit of 1, page 2 should return the second-latest post, and point to page 3
+        Action3<AuthToken, Post, Post> checkPosts = (token, p1, p2) -> {
+            Response<PostList> response = execute(API.getPosts(token.getAuthHeader(), null, null, 1, 2));
+            PostList postList = response.body();
+            assertThat(response.code(), is(HTTP_OK));
+            assertThat(postList.posts.size(), is(1));
+            assertThat(postList.posts.get(0).getTitle(), is(p1.getTitle()));
+            assertThat(postList.meta.pagination.page, is(2));
+            assertThat(postList.meta.pagination.prev, is(1));
+            assertThat(postList.getNextPage(), is(3));
+        };
+        doWithAuthToken((token, __) -> {
+            createRandomPost(token, (post1, r1, cp1) -> {
+                createRandomPost(token, (post2, r2, cp2) -> {
+                    createRandomPost(token, (post3, r3, cp3) -> {
+                        checkPosts.call(token, post2, post3);
+                    });
+                });
+            });
+        });
+    }
+
+    @Test
+    public void test_getPosts_updatedSince() {
+        // the filter should return only posts updated after the given instant
+        doWithAuthToken((token, __) -> {
+            createRandomPost(token, (expected, ___, created) -> {
+                String pastFilter = GhostApiUtils.makeUpdatedSinceFilter(
+                        new Date(created.getUpdatedAt().getTime() - 60 * 1000));
+                Response<PostList> response = execute(API.getPosts(token.getAuthHeader(),
+                        pastFilter, "updated_at asc", 100, 1));
+                assertThat(response.code(), is(HTTP_OK));
+                assertThat(response.body().posts.size(), is(1));
+                assertThat(response.body().posts.get(0).getUuid(), is(created.getUuid()));
+
+                String futureFilter = GhostApiUtils.makeUpdatedSinceFilter(
+                        new Date(created.getUpdatedAt().getTime() + 60 * 1000));
+                response = execute(API.getPosts(token.getAuthHeader(), futureFilter, null, 100, 1));
+                assertThat(response.code(), is(HTTP_OK));
+                assertThat(response.body().posts, empty());
+            });
+        });
+    }
+
+    @Test
+    public void test_getPostManifest() {
+        doWithAuthToken((token, __) -> {
+            createRandomPost(token, (expected, ___, created) -> {
+                Response<PostManifest> response = execute(API.getPostManifest(token.getAuthHeader(), null));
+                List<PostManifest.Entry> entries = response.body().posts;
+                assertThat(response.code(), is(HTTP_OK));
+                assertThat(entries.size(), is(1));
+                assertThat(entries.get(0).id, is(created.getId()));
+                assertThat(entries.get(0).uuid, is(created.getUuid()));
+                assertThat(entries.get(0).author, is(created.getAuthor()));
+                assertThat(entries.get(0).updatedAt, is(created.getUpdatedAt()));
+            });
+        });
+    }
+
+    @Test
+    public void test_getPostManifest_filteredByIds() {
+        doWithAuthToken((token, __) -> {
+            createRandomPost(token, (expected, ___, created) -> {
+                String filter = GhostApiUtils.makeIdsFilter(Arrays.asList(created.getId(), -1));
+                Response<PostManifest> response = execute(API.getPostManifest(token.getAuthHeader(), filter));
+                List<PostManifest.Entry> entries = response.body().posts;
+                assertThat(response.code(), is(HTTP_OK));
+                assertThat(entries.size(), is(1));
+                assertThat(entries.get(0).id, is(created.getId()));
+                assertThat(entries.get(0).updatedAt, is(created.getUpdatedAt()));
+            });
+        });
+    }
+
     @Test
     public void test_getPost() {
         doWithAuthToken((token, __) -> {
@@ -371,8 +452,7 @@ public final class GhostApiTest {
 
     @Nullable
     private static String getClientSecret() {
-        String html = execute(API.getLoginPage(NetworkUtils.makeAbsoluteUrl(BLOG_URL, "ghost/"))).body();
-        return GhostApiUtils.extractClientSecretFromHtml(html);
+        return execute(API.getLoginPage(NetworkUtils.makeAbsoluteUrl(BLOG_URL, "ghost/"))).body().value;
     }
 
     @NonNull
@@ -0,0 +1,84 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Date;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: unit tests for scanning the Ghost admin page for the client secret, and for the filter
+ * used by delta syncs
+ */
+
+public final class GhostApiUtilsTest {
+
+    @Test
+    public void extractClientSecret_quotedAttributes() throws IOException {
+        String html = "<!doctype html><html><head><meta charset=\"utf-8\">"
+                + "<meta name=\"env-clientSecret\" content=\"1a2b3c4d5e6f\" />"
+                + "</head><body></body></html>";
+        assertThat(GhostApiUtils.extractClientSecret(new StringReader(html)), is("1a2b3c4d5e6f"));
+    }
+
+    @Test
+    public void extractClientSecret_unquotedAttributes() throws IOException {
+        String html = "<html><head>\n<meta name=env-clientSecret content=1a2b3c4d5e6f>\n</head></html>";
+        assertThat(GhostApiUtils.extractClientSecret(new StringReader(html)), is("1a2b3c4d5e6f"));
+    }
+
+    @Test
+    public void extractClientSecret_oldGhostWithoutClientSecret() throws IOException {
+        String html = "<html><head><meta name=\"env-clientId\" content=\"ghost-admin\"></head>"
+                + "<body></body></html>";
+        assertThat(GhostApiUtils.extractClientSecret(new StringReader(html)), is(nullValue()));
+    }
+
+    @Test
+    public void extractClientSecret_stopsReadingAtEndOfHead() throws IOException {
+        String head = "<html><head><title>Ghost Admin</title></head>";
+        CountingReader reader = new CountingReader(new StringReader(head
+                + "<body>" + new String(new char[100_000]).replace('\0', 'x') + "</body></html>"));
+        assertThat(GhostApiUtils.extractClientSecret(reader), is(nullValue()));
+        assertThat(reader.numCharsRead, is(head.length()));
+    }
+
+    @Test
+    public void makeUpdatedSinceFilter_includesTheWatermarkSecond() {
+        // 2017-01-02 03:04:05.678 UTC
+        Date watermark = new Date(1483326245678L);
+        // a post updated later in the same second compares equal at second granularity, so a
+        // strict > would skip it forever
+        assertThat(GhostApiUtils.makeUpdatedSinceFilter(watermark),
+                is("updated_at:>='2017-01-02 03:04:05'"));
+    }
+
+
+    // helpers
+    private static final class CountingReader extends Reader {
+        private final Reader mReader;
+        int numCharsRead = 0;
+
+        CountingReader(Reader reader) {
+            mReader = reader;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int n = mReader.read(buf, off, len);
+            if (n > 0) numCharsRead += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mReader.close();
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package me.vickychijwani.spectre.network;
+
+import com.google.gson.Gson;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import me.vickychijwani.spectre.network.entity.PostList;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: compare parsing a page of posts with the streaming TypeAdapters against
+ * reflection-based Gson, see {@link Benchmarks}
+ */
+
+@Ignore("benchmark, run manually")
+public final class GhostTypeAdaptersBenchmark {
+
+    private static final int NUM_POSTS = 500;
+    private static final int NUM_RUNS = 20;
+
+    @Test
+    public void parse500Posts() throws Exception {
+        Gson reflectiveGson = GhostApiUtils.makeGsonBuilder().create();
+        Gson streamingGson = GhostApiUtils.makeGsonBuilder()
+                .registerTypeAdapterFactory(new GhostTypeAdapterFactory())
+                .create();
+        StringBuilder json = new StringBuilder("{\"posts\":[");
+        for (int i = 1; i <= NUM_POSTS; ++i) {
+            if (i > 1) json.append(',');
+            json.append(GhostTypeAdaptersTest.makePostJson(i));
+        }
+        String payload = json.append("]}").toString();
+
+        double reflectiveMillis = Benchmarks.measureMillis(NUM_RUNS,
+                () -> reflectiveGson.fromJson(payload, PostList.class));
+        double streamingMillis = Benchmarks.measureMillis(NUM_RUNS,
+                () -> streamingGson.fromJson(payload, PostList.class));
+
+        Benchmarks.report("Parsing " + NUM_POSTS + " posts", reflectiveMillis, streamingMillis);
+        assertThat(streamingGson.fromJson(payload, PostList.class).posts.size(), is(NUM_POSTS));
+    }
+
+}
@@ -0,0 +1,221 @@
+package me.vickychijwani.spectre.network;
+
+import com.google.gson.Gson;
+import com.google.gson.FieldAttributes;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import me.vickychijwani.spectre.model.entity.AuthToken;
+import me.vickychijwani.spectre.model.entity.Post;
+import me.vickychijwani.spectre.model.entity.Role;
+import me.vickychijwani.spectre.model.entity.Setting;
+import me.vickychijwani.spectre.model.entity.Tag;
+import me.vickychijwani.spectre.model.entity.User;
+import me.vickychijwani.spectre.network.entity.PostList;
+import me.vickychijwani.spectre.network.entity.SettingsList;
+import me.vickychijwani.spectre.network.entity.UserList;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: check that the streaming TypeAdapters parse exactly like reflection-based Gson, including
+ * for every field of the entities, so a field added to an entity but not to its adapter fails here
+ */
+
+public final class GhostTypeAdaptersTest {
+
+    // entities with a streaming adapter in GhostTypeAdapterFactory
+    private static final List<Class<?>> ENTITY_CLASSES = Arrays.asList(Post.class, Tag.class,
+            User.class, Role.class, Setting.class, AuthToken.class);
+
+    private static final Gson REFLECTIVE_GSON = GhostApiUtils.makeGsonBuilder().create();
+    private static final Gson STREAMING_GSON = GhostApiUtils.makeGsonBuilder()
+            .registerTypeAdapterFactory(new GhostTypeAdapterFactory())
+            .create();
+
+    @Test
+    public void read_postList_matchesReflection() {
+        String json = "{\"posts\":[" + makePostJson(1) + ","
+                // nulls, missing fields, excluded fields and unknown fields
+                + "{\"id\":2,\"uuid\":\"uuid-2\",\"title\":\"Draft\",\"status\":\"draft\","
+                + "\"published_at\":null,\"image\":null,\"featured\":null,\"tags\":[],"
+                + "\"sort_key\":42,\"conflict_state\":\"conflict:unresolved\","
+                + "\"author\":1,\"visibility\":{\"nested\":[\"unknown\"]}}"
+                + "],\"meta\":{\"pagination\":{\"page\":1,\"limit\":15,\"pages\":1,\"total\":2,"
+                + "\"next\":null,\"prev\":null}}}";
+        assertParsesLikeReflection(json, PostList.class);
+    }
+
+    @Test
+    public void read_userList_matchesReflection() {
+        String json = "{\"users\":[{\"id\":1,\"uuid\":\"user-uuid\",\"name\":\"Jane\","
+                + "\"slug\":\"jane\",\"email\":\"jane@example.com\",\"image\":null,\"bio\":\"Hi\","
+                + "\"status\":\"active\",\"roles\":[{\"id\":3,\"uuid\":\"role-uuid\","
+                + "\"name\":\"Author\",\"description\":\"Authors\"}]}]}";
+        assertParsesLikeReflection(json, UserList.class);
+    }
+
+    @Test
+    public void read_settingsList_matchesReflection() {
+        String json = "{\"settings\":[{\"id\":1,\"uuid\":\"s-1\",\"key\":\"title\",\"value\":\"Blog\"},"
+                + "{\"id\":2,\"uuid\":\"s-2\",\"key\":\"isPrivate\",\"value\":false},"
+                + "{\"id\":3,\"uuid\":\"s-3\",\"key\":\"postsPerPage\",\"value\":5},"
+                + "{\"id\":4,\"uuid\":\"s-4\",\"key\":\"cover\",\"value\":null}],"
+                + "\"meta\":{\"filters\":{\"type\":\"blog\"}}}";
+        assertParsesLikeReflection(json, SettingsList.class);
+    }
+
+    @Test
+    public void read_authToken_matchesReflection() {
+        String json = "{\"access_token\":\"access\",\"refresh_token\":\"refresh\","
+                + "\"expires_in\":3600,\"token_type\":\"Bearer\"}";
+        assertParsesLikeReflection(json, AuthToken.class);
+    }
+
+    @Test
+    public void read_everySerializedField_matchesReflection() throws Exception {
+        for (Class<?> clazz : ENTITY_CLASSES) {
+            String json = REFLECTIVE_GSON.toJson(makeFixture(clazz));
+            Object expected = REFLECTIVE_GSON.fromJson(json, clazz);
+            Object actual = STREAMING_GSON.fromJson(json, clazz);
+            assertNoDefaultValues(clazz.getSimpleName(), expected);
+            assertSameFields(clazz.getSimpleName(), expected, actual);
+        }
+    }
+
+
+    // helpers
+    private static void assertParsesLikeReflection(String json, Class<?> clazz) {
+        Object expected = REFLECTIVE_GSON.fromJson(json, clazz);
+        Object actual = STREAMING_GSON.fromJson(json, clazz);
+        // compare by serializing both with reflection, since not all entities implement equals()
+        assertThat(REFLECTIVE_GSON.toJson(actual), is(REFLECTIVE_GSON.toJson(expected)));
+    }
+
+    // same exclusions as GhostApiUtils.makeGsonBuilder(), plus Gson's default ones
+    private static List<Field> getSerializedFields(Class<?> clazz) {
+        RealmExclusionStrategy realmExclusionStrategy = new RealmExclusionStrategy();
+        AnnotationExclusionStrategy annotationExclusionStrategy = new AnnotationExclusionStrategy();
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                FieldAttributes attributes = new FieldAttributes(field);
+                if (field.isSynthetic()
+                        || attributes.hasModifier(Modifier.STATIC)
+                        || attributes.hasModifier(Modifier.TRANSIENT)
+                        || realmExclusionStrategy.shouldSkipField(attributes)
+                        || annotationExclusionStrategy.shouldSkipField(attributes)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    // JSON for the given entity with every serialized field set to a value other than its default
+    private static JsonObject makeFixture(Class<?> clazz) throws Exception {
+        Object defaults = clazz.newInstance();
+        JsonObject json = new JsonObject();
+        int counter = 1000;
+        for (Field field : getSerializedFields(clazz)) {
+            Class<?> type = field.getType();
+            JsonElement value;
+            if (type == String.class) {
+                value = new JsonPrimitive(field.getName() + "-value");
+            } else if (type == int.class || type == Integer.class
+                    || type == long.class || type == Long.class) {
+                value = new JsonPrimitive(++counter);
+            } else if (type == boolean.class || type == Boolean.class) {
+                value = new JsonPrimitive(! Boolean.TRUE.equals(field.get(defaults)));
+            } else if (type == Date.class) {
+                value = new JsonPrimitive(String.format("2016-01-02T03:04:%02d.678Z",
+                        ++counter % 60));
+            } else if (List.class.isAssignableFrom(type)) {
+                Class<?> elementType = (Class<?>) ((ParameterizedType) field.getGenericType())
+                        .getActualTypeArguments()[0];
+                JsonArray array = new JsonArray();
+                array.add(makeFixture(elementType));
+                value = array;
+            } else if (ENTITY_CLASSES.contains(type)) {
+                value = makeFixture(type);
+            } else {
+                throw new AssertionError("Unsupported type of " + clazz.getSimpleName() + "."
+                        + field.getName() + ", add it to makeFixture()");
+            }
+            json.add(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES.translateName(field), value);
+        }
+        return json;
+    }
+
+    // check the fixture itself, else a field missing from the adapter could go unnoticed
+    private static void assertNoDefaultValues(String path, Object entity) throws Exception {
+        Object defaults = entity.getClass().newInstance();
+        for (Field field : getSerializedFields(entity.getClass())) {
+            Object value = field.get(entity);
+            String fieldPath = path + "." + field.getName();
+            if (value instanceof List) {
+                assertThat(fieldPath + " is empty", ((List<?>) value).isEmpty(), is(false));
+                for (Object element : (List<?>) value) {
+                    assertNoDefaultValues(fieldPath + "[]", element);
+                }
+            } else {
+                assertThat(fieldPath + " has its default value", value,
+                        not(is(field.get(defaults))));
+            }
+        }
+    }
+
+    private static void assertSameFields(String path, Object expected, Object actual)
+            throws Exception {
+        if (expected instanceof List && actual instanceof List) {
+            List<?> expectedList = (List<?>) expected, actualList = (List<?>) actual;
+            assertThat(path + ".size()", actualList.size(), is(expectedList.size()));
+            for (int i = 0; i < expectedList.size(); ++i) {
+                assertSameFields(path + "[" + i + "]", expectedList.get(i), actualList.get(i));
+            }
+        } else if (expected != null && actual != null
+                && ENTITY_CLASSES.contains(expected.getClass())) {
+            for (Field field : getSerializedFields(expected.getClass())) {
+                assertSameFields(path + "." + field.getName(), field.get(expected),
+                        field.get(actual));
+            }
+        } else {
+            assertThat(path + " differs", Objects.equals(actual, expected), is(true));
+        }
+    }
+
+    static String makePostJson(int id) {
+        return "{\"id\":" + id + ",\"uuid\":\"uuid-" + id + "\",\"title\":\"Post " + id + "\","
+                + "\"slug\":\"post-" + id + "\",\"markdown\":\"# Heading\\n\\nSome *markdown* for post "
+                + id + "\",\"html\":\"<h1>Heading</h1><p>Some <em>markdown</em> for post " + id
+                + "</p>\",\"image\":\"/content/images/" + id + ".jpg\",\"featured\":" + (id % 2 == 0)
+                + ",\"page\":false,\"status\":\"published\",\"language\":\"en_US\","
+                + "\"visibility\":\"public\",\"meta_title\":null,\"meta_description\":null,"
+                + "\"author\":1,\"created_at\":\"2016-01-01T10:00:00.000Z\",\"created_by\":1,"
+                + "\"updated_at\":\"2016-01-02T10:00:00.000Z\",\"updated_by\":1,"
+                + "\"published_at\":\"2016-01-03T10:00:00.000Z\",\"published_by\":1,"
+                + "\"tags\":[{\"id\":1,\"uuid\":\"tag-1\",\"name\":\"Tag 1\",\"slug\":\"tag-1\","
+                + "\"description\":null,\"image\":null,\"hidden\":false,\"parent\":null,"
+                + "\"meta_title\":null,\"meta_description\":null,"
+                + "\"created_at\":\"2016-01-01T10:00:00.000Z\",\"updated_at\":\"2016-01-01T10:00:00.000Z\"}]}";
+    }
+
+}
@@ -0,0 +1,113 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: unit tests for the concurrency limit and ordering of image prefetches
+ */
+
+public final class ImagePrefetcherTest {
+
+    @Test
+    public void prefetch_respectsMaxInFlight() {
+        FakeFetcher fetcher = new FakeFetcher();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(2, fetcher);
+        prefetcher.prefetch(Arrays.asList("a", "b", "c"), Collections.emptyList());
+
+        assertThat(fetcher.started, contains("a", "b"));
+        fetcher.finish("a");
+        assertThat(fetcher.started, contains("a", "b", "c"));
+        fetcher.finish("b");
+        fetcher.finish("c");
+        assertThat(prefetcher.isIdle(), is(true));
+    }
+
+    @Test
+    public void prefetch_pinnedImagesGoFirst() {
+        FakeFetcher fetcher = new FakeFetcher();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(1, fetcher);
+        prefetcher.prefetch(Arrays.asList("a", "b", "c"), Collections.singletonList("c"));
+        fetcher.finish("c");
+        fetcher.finish("a");
+
+        assertThat(fetcher.started, contains("c", "a", "b"));
+    }
+
+    @Test
+    public void prefetch_onlyPinnedImagesAreFetchedAsPinned() {
+        FakeFetcher fetcher = new FakeFetcher();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(2, fetcher);
+        prefetcher.prefetch(Collections.singletonList("a"), Collections.singletonList("b"));
+
+        assertThat(fetcher.pinned, contains("b"));
+    }
+
+    @Test
+    public void prefetch_replacesPendingImagesAndSkipsInFlightOnes() {
+        FakeFetcher fetcher = new FakeFetcher();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(1, fetcher);
+        prefetcher.prefetch(Arrays.asList("a", "b"), Collections.emptyList());
+        prefetcher.prefetch(Arrays.asList("a", "c"), Collections.emptyList());
+        fetcher.finish("a");
+        fetcher.finish("c");
+
+        assertThat(fetcher.started, contains("a", "c"));
+        assertThat(prefetcher.isIdle(), is(true));
+    }
+
+    @Test
+    public void cancel_letsInFlightImagesFinish() {
+        FakeFetcher fetcher = new FakeFetcher();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(1, fetcher);
+        prefetcher.prefetch(Arrays.asList("a", "b"), Collections.emptyList());
+        prefetcher.cancel();
+        assertThat(prefetcher.getInFlightCount(), is(1));
+        fetcher.finish("a");
+
+        assertThat(fetcher.started, contains("a"));
+        assertThat(prefetcher.isIdle(), is(true));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void onDone_calledTwice_throws() {
+        FakeFetcher fetcher = new FakeFetcher();
+        ImagePrefetcher prefetcher = new ImagePrefetcher(1, fetcher);
+        prefetcher.prefetch(Collections.singletonList("a"), Collections.emptyList());
+        Runnable onDone = fetcher.onDoneByUrl.get("a");
+        onDone.run();
+        onDone.run();
+    }
+
+
+    // helpers
+    private static final class FakeFetcher implements ImagePrefetcher.Fetcher {
+        final List<String> started = new ArrayList<>();
+        final List<String> pinned = new ArrayList<>();
+        final Map<String, Runnable> onDoneByUrl = new LinkedHashMap<>();
+
+        @Override
+        public void fetch(String url, boolean isPinned, Runnable onDone) {
+            started.add(url);
+            if (isPinned) {
+                pinned.add(url);
+            }
+            onDoneByUrl.put(url, onDone);
+        }
+
+        void finish(String url) {
+            onDoneByUrl.remove(url).run();
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * PURPOSE: check that pinned images are served from the store without going to the network, and
+ * stay there until they're released
+ */
+
+public final class PinnedImageStoreTest {
+
+    private static final String URL_A = "https://blog.example.com/content/images/a.jpg";
+    private static final String URL_B = "https://blog.example.com/content/images/b.jpg";
+
+    @Rule public final TemporaryFolder mTempDir = new TemporaryFolder();
+
+    private MockWebServer mServer;
+    private PinnedImageStore mStore;
+
+    @Before
+    public void setup() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        mStore = new PinnedImageStore(new File(mTempDir.getRoot(), "pinned"));
+    }
+
+    @After
+    public void teardown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void put_imageCanBeReadBack() throws IOException {
+        mStore.put(URL_A, stream("image a"));
+        assertThat(read(mStore.get(URL_A)), is("image a"));
+        assertThat(mStore.get(URL_B), nullValue());
+    }
+
+    @Test
+    public void put_failedCopyLeavesPreviousImage() throws IOException {
+        mStore.put(URL_A, stream("image a"));
+        try {
+            mStore.put(URL_A, new FailingInputStream());
+            fail("expected an IOException");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertThat(read(mStore.get(URL_A)), is("image a"));
+    }
+
+    @Test
+    public void retainOnly_releasesOtherImages() throws IOException {
+        mStore.put(URL_A, stream("image a"));
+        mStore.put(URL_B, stream("image b"));
+        mStore.retainOnly(Collections.singletonList(URL_B));
+        assertThat(mStore.get(URL_A), nullValue());
+        assertThat(mStore.get(URL_B), notNullValue());
+    }
+
+    @Test
+    public void clear_releasesAllImages() throws IOException {
+        mStore.put(URL_A, stream("image a"));
+        mStore.clear();
+        assertThat(mStore.get(URL_A), nullValue());
+    }
+
+    @Test
+    public void interceptor_servesPinnedImageWithoutNetwork() throws IOException {
+        String url = mServer.url("/a.jpg").toString();
+        mStore.put(url, stream("image a"));
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new PinnedImageInterceptor(mStore))
+                .build();
+
+        Response response = client.newCall(new Request.Builder().url(url).build()).execute();
+        assertThat(response.isSuccessful(), is(true));
+        assertThat(response.body().string(), is("image a"));
+        assertThat(mServer.getRequestCount(), is(0));
+    }
+
+    @Test
+    public void interceptor_unpinnedImageGoesToNetwork() throws IOException {
+        mServer.enqueue(new MockResponse().setBody("image b"));
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new PinnedImageInterceptor(mStore))
+                .build();
+
+        Request request = new Request.Builder().url(mServer.url("/b.jpg")).build();
+        Response response = client.newCall(request).execute();
+        assertThat(response.body().string(), is("image b"));
+        assertThat(mServer.getRequestCount(), is(1));
+    }
+
+
+    // helpers
+    private static InputStream stream(String contents) {
+        return new ByteArrayInputStream(contents.getBytes());
+    }
+
+    private static String read(File file) throws IOException {
+        assertThat(file, notNullValue());
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+            return new String(bytes);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static final class FailingInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            throw new IOException("connection reset");
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.vickychijwani.spectre.model.entity.PendingAction;
+import me.vickychijwani.spectre.model.entity.Post;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: compare merging server posts with local posts using PostReconciler against the nested
+ * loop it replaced, see {@link Benchmarks}
+ */
+
+@Ignore("benchmark, run manually")
+public final class PostReconcilerBenchmark {
+
+    private static final int NUM_POSTS = 10_000;
+    private static final int NUM_RUNS = 5;
+
+    @Test
+    public void reconcile10kPosts() throws Exception {
+        List<Post> serverPosts = new ArrayList<>(NUM_POSTS);
+        List<Post> localPosts = new ArrayList<>(NUM_POSTS);
+        for (int i = 0; i < NUM_POSTS; ++i) {
+            String uuid = "uuid-" + i;
+            serverPosts.add(PostReconcilerTest.makePost(uuid));
+            // every 10th post has local edits
+            localPosts.add((i % 10 == 0)
+                    ? PostReconcilerTest.makePost(uuid, PendingAction.EDIT)
+                    : PostReconcilerTest.makePost(uuid));
+        }
+
+        double oldMillis = Benchmarks.measureMillis(NUM_RUNS,
+                () -> removeLocallyEditedPostsWithNestedLoop(serverPosts, localPosts));
+        double newMillis = Benchmarks.measureMillis(NUM_RUNS,
+                () -> PostReconciler.reconcile(serverPosts, localPosts));
+
+        Benchmarks.report("Reconciling " + NUM_POSTS + " posts", oldMillis, newMillis);
+        assertThat(PostReconciler.reconcile(serverPosts, localPosts).getPostsToSave(),
+                is(removeLocallyEditedPostsWithNestedLoop(serverPosts, localPosts)));
+    }
+
+
+    // helpers
+    // the previous implementation in NetworkService: O(server posts x locally edited posts)
+    private static List<Post> removeLocallyEditedPostsWithNestedLoop(List<Post> serverPosts,
+                                                                     List<Post> localPosts) {
+        List<Post> localOnlyEdits = new ArrayList<>();
+        for (Post post : localPosts) {
+            if (post.hasPendingAction(PendingAction.EDIT)
+                    || post.hasPendingAction(PendingAction.EDIT_LOCAL)) {
+                localOnlyEdits.add(post);
+            }
+        }
+        List<Post> posts = new ArrayList<>(serverPosts);
+        for (int i = posts.size() - 1; i >= 0; --i) {
+            for (int j = 0; j < localOnlyEdits.size(); ++j) {
+                if (posts.get(i).getUuid().equals(localOnlyEdits.get(j).getUuid())) {
+                    posts.remove(i);
+                    break;
+                }
+            }
+        }
+        return posts;
+    }
+
+}
@@ -0,0 +1,108 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import me.vickychijwani.spectre.model.entity.PendingAction;
+import me.vickychijwani.spectre.model.entity.Post;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: unit tests for merging server posts with local posts
+ */
+
+public final class PostReconcilerTest {
+
+    private static final int MANY_POSTS = 10_000;
+
+    @Test
+    public void reconcile_classifiesServerPosts() {
+        Post newOnServer = makePost("new");
+        Post updatedOnServer = makePost("updated");
+        Post editedLocally = makePost("edited", PendingAction.EDIT);
+        Post autoSavedLocally = makePost("auto-saved", PendingAction.EDIT_LOCAL);
+        List<Post> localPosts = Arrays.asList(makePost("updated"), editedLocally, autoSavedLocally);
+
+        PostReconciler.Result result = PostReconciler.reconcile(Arrays.asList(newOnServer,
+                updatedOnServer, makePost("edited"), makePost("auto-saved")), localPosts);
+
+        assertThat(result.created, contains(newOnServer));
+        assertThat(result.updated, contains(updatedOnServer));
+        assertThat(uuidsOf(result.skipped), contains("edited", "auto-saved"));
+        assertThat(result.getPostsToSave(), contains(newOnServer, updatedOnServer));
+    }
+
+    @Test
+    public void findDeletedPosts_ignoresPostsNotYetCreatedOnServer() {
+        Post deletedOnServer = makePost("deleted");
+        List<Post> localPosts = Arrays.asList(makePost("kept"), deletedOnServer,
+                makePost("local-only", PendingAction.CREATE));
+
+        List<Post> deleted = PostReconciler.findDeletedPosts(
+                new HashSet<>(Arrays.asList("kept", "new")), localPosts);
+
+        assertThat(deleted, contains(deletedOnServer));
+    }
+
+    @Test
+    public void findDeletedPosts_noDeletions() {
+        List<Post> localPosts = Arrays.asList(makePost("a"), makePost("b"));
+        assertThat(PostReconciler.findDeletedPosts(new HashSet<>(Arrays.asList("a", "b")),
+                localPosts), is(empty()));
+    }
+
+    @Test
+    public void reconcile_manyPosts() {
+        List<Post> serverPosts = new ArrayList<>(MANY_POSTS);
+        List<Post> localPosts = new ArrayList<>(MANY_POSTS);
+        HashSet<String> serverUuids = new HashSet<>();
+        for (int i = 0; i < MANY_POSTS; ++i) {
+            String uuid = "uuid-" + i;
+            serverPosts.add(makePost(uuid));
+            serverUuids.add(uuid);
+            // every 10th post has local edits, every 100th post is deleted on the server
+            if (i % 10 == 0) {
+                localPosts.add(makePost(uuid, PendingAction.EDIT));
+            } else if (i % 100 == 1) {
+                localPosts.add(makePost(uuid + "-deleted"));
+            } else {
+                localPosts.add(makePost(uuid));
+            }
+        }
+
+        PostReconciler.Result result = PostReconciler.reconcile(serverPosts, localPosts);
+        List<Post> deleted = PostReconciler.findDeletedPosts(serverUuids, localPosts);
+
+        assertThat(result.skipped.size(), is(MANY_POSTS / 10));
+        assertThat(result.created.size(), is(MANY_POSTS / 100));
+        assertThat(deleted.size(), is(MANY_POSTS / 100));
+    }
+
+
+    // helpers
+    static Post makePost(String uuid, @PendingAction.Type String... pendingActions) {
+        Post post = new Post();
+        post.setUuid(uuid);
+        for (String pendingAction : pendingActions) {
+            post.addPendingAction(pendingAction);
+        }
+        return post;
+    }
+
+    private static List<String> uuidsOf(List<Post> posts) {
+        List<String> uuids = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            uuids.add(post.getUuid());
+        }
+        return uuids;
+    }
+
+}
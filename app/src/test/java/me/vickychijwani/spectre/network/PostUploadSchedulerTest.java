@@ -0,0 +1,94 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: unit tests for the concurrency limit, priority and per-post ordering of post uploads
+ */
+
+public final class PostUploadSchedulerTest {
+
+    @Test
+    public void schedule_respectsMaxInFlight() {
+        PostUploadScheduler scheduler = new PostUploadScheduler(2);
+        FakeOperations ops = new FakeOperations();
+        scheduler.schedule("a", false, ops.make("a"));
+        scheduler.schedule("b", false, ops.make("b"));
+        scheduler.schedule("c", false, ops.make("c"));
+
+        assertThat(ops.started, contains("a", "b"));
+        ops.finish("a");
+        assertThat(ops.started, contains("a", "b", "c"));
+    }
+
+    @Test
+    public void schedule_userInitiatedPostsGoFirst() {
+        PostUploadScheduler scheduler = new PostUploadScheduler(1);
+        FakeOperations ops = new FakeOperations();
+        scheduler.schedule("a", false, ops.make("a"));
+        scheduler.schedule("b", false, ops.make("b"));
+        scheduler.schedule("c", true, ops.make("c"));
+
+        ops.finish("a");
+        ops.finish("c");
+        assertThat(ops.started, contains("a", "c", "b"));
+    }
+
+    @Test
+    public void schedule_operationsOnSamePostRunInOrder() {
+        PostUploadScheduler scheduler = new PostUploadScheduler(3);
+        FakeOperations ops = new FakeOperations();
+        scheduler.schedule("a", false, ops.make("a-1"));
+        scheduler.schedule("a", true, ops.make("a-2"));
+        scheduler.schedule("b", false, ops.make("b"));
+
+        // a-2 must wait for a-1 even though there are free slots
+        assertThat(ops.started, contains("a-1", "b"));
+        ops.finish("a-1");
+        assertThat(ops.started, contains("a-1", "b", "a-2"));
+    }
+
+    @Test
+    public void runWhenIdle_runsOnceAllOperationsAreDone() {
+        PostUploadScheduler scheduler = new PostUploadScheduler(1);
+        FakeOperations ops = new FakeOperations();
+        scheduler.schedule("a", false, ops.make("a"));
+        scheduler.schedule("b", false, ops.make("b"));
+        final int[] numIdleCalls = {0};
+        scheduler.runWhenIdle(() -> ++numIdleCalls[0]);
+
+        ops.finish("a");
+        assertThat(numIdleCalls[0], is(0));
+        ops.finish("b");
+        assertThat(numIdleCalls[0], is(1));
+        assertThat(scheduler.isIdle(), is(true));
+    }
+
+
+    // helpers
+    private static final class FakeOperations {
+        final List<String> started = new ArrayList<>();
+        private final Map<String, Runnable> mInFlight = new LinkedHashMap<>();
+
+        PostUploadScheduler.Operation make(String name) {
+            return onDone -> {
+                started.add(name);
+                mInFlight.put(name, onDone);
+            };
+        }
+
+        void finish(String name) {
+            mInFlight.remove(name).run();
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package me.vickychijwani.spectre.network;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: unit tests for how failed image uploads from the outbox are retried
+ */
+
+public final class UploadRetryPolicyTest {
+
+    @Test
+    public void getRetryDelay_doublesAfterEachFailure() {
+        long base = UploadRetryPolicy.BASE_RETRY_DELAY;
+        assertThat(UploadRetryPolicy.getRetryDelay(1), is(base));
+        assertThat(UploadRetryPolicy.getRetryDelay(2), is(2 * base));
+        assertThat(UploadRetryPolicy.getRetryDelay(3), is(4 * base));
+    }
+
+    @Test
+    public void getRetryDelay_isCapped() {
+        assertThat(UploadRetryPolicy.getRetryDelay(10), is(UploadRetryPolicy.MAX_RETRY_DELAY));
+        // no overflow after a long time offline
+        assertThat(UploadRetryPolicy.getRetryDelay(1000), is(UploadRetryPolicy.MAX_RETRY_DELAY));
+    }
+
+    @Test
+    public void isRetryable_serverErrorsAndThrottling() {
+        assertThat(UploadRetryPolicy.isRetryable(500), is(true));
+        assertThat(UploadRetryPolicy.isRetryable(503), is(true));
+        assertThat(UploadRetryPolicy.isRetryable(408), is(true));
+        assertThat(UploadRetryPolicy.isRetryable(429), is(true));
+    }
+
+    @Test
+    public void isRetryable_notWhenTheServerRejectsTheFile() {
+        assertThat(UploadRetryPolicy.isRetryable(400), is(false));
+        assertThat(UploadRetryPolicy.isRetryable(413), is(false));     // too large
+        assertThat(UploadRetryPolicy.isRetryable(415), is(false));     // unsupported type
+    }
+
+}
@@ -0,0 +1,36 @@
+package me.vickychijwani.spectre.util;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: check the sizes images are decoded and scaled to before upload
+ */
+
+public final class ImageUtilsTest {
+
+    @Test
+    public void calculateInSampleSize_staysAtLeastAsLargeAsTarget() {
+        // 12 MP camera photo
+        assertThat(ImageUtils.calculateInSampleSize(4032, 3024, 2000), is(2));
+        assertThat(ImageUtils.calculateInSampleSize(3024, 4032, 2000), is(2));
+        assertThat(ImageUtils.calculateInSampleSize(8000, 6000, 2000), is(4));
+        assertThat(ImageUtils.calculateInSampleSize(3999, 3000, 2000), is(1));
+        assertThat(ImageUtils.calculateInSampleSize(1000, 800, 2000), is(1));
+    }
+
+    @Test
+    public void getScaleFactor_capsLongerSide() {
+        assertThat(ImageUtils.getScaleFactor(2016, 1512, 2000), is(2000f / 2016));
+        assertThat(ImageUtils.getScaleFactor(1512, 2016, 2000), is(2000f / 2016));
+    }
+
+    @Test
+    public void getScaleFactor_neverUpscales() {
+        assertThat(ImageUtils.getScaleFactor(1000, 800, 2000), is(1f));
+        assertThat(ImageUtils.getScaleFactor(2000, 800, 2000), is(1f));
+    }
+
+}
@@ -0,0 +1,67 @@
+package me.vickychijwani.spectre.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * PURPOSE: check how the progress of concurrent image uploads is combined
+ */
+
+public final class UploadBatchProgressTest {
+
+    @Test
+    public void getPercent_averagesFilesEqually() {
+        UploadBatchProgress batch = new UploadBatchProgress(Arrays.asList("a", "b"));
+        assertThat(batch.getPercent(), is(0));
+        batch.setProgress("a", 50, 100);
+        assertThat(batch.getPercent(), is(25));
+        // a much larger file doesn't count for more
+        batch.setProgress("b", 5_000_000, 10_000_000);
+        assertThat(batch.getPercent(), is(50));
+    }
+
+    @Test
+    public void getPercent_unknownSizeCountsAsNotStarted() {
+        UploadBatchProgress batch = new UploadBatchProgress(Arrays.asList("a", "b"));
+        batch.setProgress("a", 100, -1);
+        batch.setProgress("b", 100, 100);
+        assertThat(batch.getPercent(), is(50));
+    }
+
+    @Test
+    public void setDone_countsAsComplete() {
+        UploadBatchProgress batch = new UploadBatchProgress(Arrays.asList("a", "b", "c"));
+        batch.setDone("b");
+        assertThat(batch.getDoneCount(), is(1));
+        assertThat(batch.getPercent(), is(33));
+        assertThat(batch.isDone(), is(false));
+        batch.setDone("a");
+        batch.setDone("c");
+        assertThat(batch.isDone(), is(true));
+        assertThat(batch.getPercent(), is(100));
+    }
+
+    @Test
+    public void setProgress_ignoredAfterDone() {
+        UploadBatchProgress batch = new UploadBatchProgress(Collections.singletonList("a"));
+        batch.setDone("a");
+        batch.setProgress("a", 0, 100);
+        assertThat(batch.getPercent(), is(100));
+    }
+
+    @Test
+    public void unknownKeysAreIgnored() {
+        UploadBatchProgress batch = new UploadBatchProgress(Collections.singletonList("a"));
+        batch.setProgress("other", 100, 100);
+        batch.setDone("other");
+        assertThat(batch.contains("other"), is(false));
+        assertThat(batch.getDoneCount(), is(0));
+        assertThat(batch.getPercent(), is(0));
+    }
+
+}